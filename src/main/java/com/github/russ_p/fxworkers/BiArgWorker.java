@@ -1,5 +1,15 @@
 package com.github.russ_p.fxworkers;
 
+import java.util.concurrent.CompletionStage;
+
 public interface BiArgWorker<T, U> extends FxWorker{
 	void run(T t, U u);
-}
\ No newline at end of file
+
+	/**
+	 * @see ZeroArgWorker#submit()
+	 * @see BiFunctionWorker
+	 */
+	default CompletionStage<?> submit(T t, U u) {
+		throw new UnsupportedOperationException("Not implemented");
+	}
+}
@@ -0,0 +1,12 @@
+package com.github.russ_p.fxworkers;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link BiArgWorker} over a function, which knows the type of its result.
+ */
+public interface BiFunctionWorker<T, U, R> extends BiArgWorker<T, U> {
+
+	@Override
+	CompletionStage<R> submit(T t, U u);
+}
@@ -0,0 +1,11 @@
+package com.github.russ_p.fxworkers;
+
+/**
+ * Body of a cancellable two-argument worker without a result.
+ *
+ * @see CancellationToken
+ */
+public interface CancellableBiConsumer<T, U> {
+
+	void accept(T t, U u, CancellationToken token);
+}
@@ -0,0 +1,11 @@
+package com.github.russ_p.fxworkers;
+
+/**
+ * Body of a cancellable two-argument worker that returns a result.
+ *
+ * @see CancellationToken
+ */
+public interface CancellableBiFunction<T, U, R> {
+
+	R apply(T t, U u, CancellationToken token);
+}
@@ -0,0 +1,35 @@
+package com.github.russ_p.fxworkers;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of a worker run, passed to the bodies of
+ * cancellable workers. It is tripped when the run is superseded by a newer
+ * one, so bodies that don't react to interrupts (JDBC calls, CPU loops, bodies
+ * of {@code completableFuture()} workers) can still stop early.
+ */
+public interface CancellationToken {
+
+	/**
+	 * @return true once the run was cancelled; a volatile read, cheap enough to
+	 *         poll in a loop
+	 */
+	boolean isCancelled();
+
+	/**
+	 * @throws CancellationException if the run was cancelled
+	 */
+	default void throwIfCancelled() {
+		if (isCancelled()) {
+			throw new CancellationException();
+		}
+	}
+
+	/**
+	 * Registers a hook, like cancelling a statement, to run when the run is
+	 * cancelled. Hooks run in a background pool of their own, so they may
+	 * block; a hook registered after cancellation runs at once, in the
+	 * registering thread.
+	 */
+	void onCancel(Runnable hook);
+}
@@ -0,0 +1,12 @@
+package com.github.russ_p.fxworkers;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link UniArgWorker} over a function, which knows the type of its result.
+ */
+public interface FunctionWorker<T, R> extends UniArgWorker<T> {
+
+	@Override
+	CompletionStage<R> submit(T t);
+}
@@ -0,0 +1,31 @@
+package com.github.russ_p.fxworkers;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Receives the elements produced by the body of a streaming list worker. The
+ * elements are appended to the target list in chunks, in the FX Application
+ * thread.
+ */
+public interface ListSink<T> {
+
+	/**
+	 * Buffers the element, waiting while the buffer is full.
+	 * 
+	 * @throws CancellationException if the run was cancelled, also while
+	 *                               waiting: the producer should stop
+	 */
+	void push(T element);
+
+	default void pushAll(Iterable<? extends T> elements) {
+		for (T element : elements) {
+			push(element);
+		}
+	}
+
+	/**
+	 * @return true once the run was superseded by a newer one, timed out or
+	 *         was otherwise cancelled
+	 */
+	boolean isCancelled();
+}
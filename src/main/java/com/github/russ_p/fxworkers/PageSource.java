@@ -0,0 +1,19 @@
+package com.github.russ_p.fxworkers;
+
+import java.util.List;
+
+/**
+ * Data source of a paged list. Both methods are called in background threads.
+ */
+public interface PageSource<T> {
+
+	/**
+	 * @return total number of rows
+	 */
+	int size();
+
+	/**
+	 * @return up to {@code limit} rows starting at row {@code offset}
+	 */
+	List<T> load(int offset, int limit);
+}
@@ -0,0 +1,12 @@
+package com.github.russ_p.fxworkers;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link ZeroArgWorker} over a supplier, which knows the type of its result.
+ */
+public interface SupplierWorker<R> extends ZeroArgWorker {
+
+	@Override
+	CompletionStage<R> submit();
+}
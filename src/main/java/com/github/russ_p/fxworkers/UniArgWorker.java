@@ -1,5 +1,15 @@
 package com.github.russ_p.fxworkers;
 
+import java.util.concurrent.CompletionStage;
+
 public interface UniArgWorker<T> extends FxWorker {
 	void run(T t);
-}
\ No newline at end of file
+
+	/**
+	 * @see ZeroArgWorker#submit()
+	 * @see FunctionWorker
+	 */
+	default CompletionStage<?> submit(T t) {
+		throw new UnsupportedOperationException("Not implemented");
+	}
+}
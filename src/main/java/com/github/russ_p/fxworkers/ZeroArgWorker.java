@@ -1,5 +1,21 @@
 package com.github.russ_p.fxworkers;
 
+import java.util.concurrent.CompletionStage;
+
 public interface ZeroArgWorker extends FxWorker {
 	void run();
-}
\ No newline at end of file
+
+	/**
+	 * Same as {@link #run()}, returning the outcome of this run. The stage is
+	 * completed in the worker thread before the FX callbacks are dispatched;
+	 * a run that is dropped or superseded completes it with
+	 * {@link java.util.concurrent.CancellationException}.
+	 * <p>
+	 * Workers built over a supplier are {@link SupplierWorker}s, typed by
+	 * their result. Implementations outside this library that don't override
+	 * it throw {@link UnsupportedOperationException}.
+	 */
+	default CompletionStage<?> submit() {
+		throw new UnsupportedOperationException("Not implemented");
+	}
+}
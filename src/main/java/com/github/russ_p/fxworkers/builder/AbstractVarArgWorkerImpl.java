@@ -1,13 +1,32 @@
 package com.github.russ_p.fxworkers.builder;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-import com.github.russ_p.fxworkers.BiArgWorker;
-import com.github.russ_p.fxworkers.UniArgWorker;
-import com.github.russ_p.fxworkers.ZeroArgWorker;
+import com.github.russ_p.fxworkers.BiFunctionWorker;
+import com.github.russ_p.fxworkers.FunctionWorker;
+import com.github.russ_p.fxworkers.SupplierWorker;
 
-abstract class AbstractVarArgWorkerImpl<A, B, C, D, R> implements ZeroArgWorker, UniArgWorker<A>, BiArgWorker<A, B> {
+abstract class AbstractVarArgWorkerImpl<A, B, C, D, R>
+		implements SupplierWorker<R>, FunctionWorker<A, R>, BiFunctionWorker<A, B, R>, ConfigurableWorker {
 
 	protected final Consumer<R> onSuccess;
 	protected final Consumer<Throwable> onError;
@@ -16,6 +35,32 @@ abstract class AbstractVarArgWorkerImpl<A, B, C, D, R> implements ZeroArgWorker,
 
 	protected Executor executor;
 
+	/** looked up on each run, so a redefined lane takes effect */
+	private String lane;
+
+	private WorkerGroup group;
+
+	private Supplier<WorkerPriority> priority;
+
+	private RunPolicy runPolicy;
+
+	private Conflator<Submission<VarArg<A, B, C, D>, R>> conflator;
+
+	private ResultCache<VarArg<A, B, C, D>, R> cache;
+
+	private Object flightKey;
+
+	private List<Stage> stages = Collections.emptyList();
+
+	private boolean asyncBody;
+
+	private Duration timeout;
+
+	private Retry retry;
+
+	/** latest accepted run, replaced by CAS only */
+	private final AtomicReference<Run> current = new AtomicReference<>();
+
 	protected AbstractVarArgWorkerImpl(Consumer<R> onSuccess, Consumer<Throwable> onError, Runnable onRun,
 			Runnable onComplete) {
 		this.onSuccess = onSuccess;
@@ -28,22 +73,562 @@ abstract class AbstractVarArgWorkerImpl<A, B, C, D, R> implements ZeroArgWorker,
 		this.executor = executor;
 	}
 
+	/**
+	 * @return executor for the tasks of {@code run}; a task rejected by the
+	 *         pool after waiting in a group queue fails the run
+	 */
+	protected Executor executor(Run run) {
+		return executor(e -> rejected(run, e));
+	}
+
+	/**
+	 * @return own executor of the worker, its lane's, or the one of the current
+	 *         provider; through the scheduler for workers with a group or a
+	 *         priority
+	 */
+	private Executor executor(Consumer<RuntimeException> rejected) {
+		Executor e = executor;
+		if (e == null) {
+			e = lane == null ? WorkersBuilder.defaultExecutor() : WorkerLane.get(lane).getExecutor();
+		}
+		return WorkerGroup.scheduled(e, group, priority, rejected);
+	}
+
+	@Override
+	public void configure(WorkerOptions options) {
+		this.lane = options.lane;
+		this.group = options.group == null ? null : WorkerGroup.get(options.group);
+		this.priority = options.priority;
+		this.runPolicy = options.runPolicy == null ? null : options.runPolicy.get();
+		this.conflator = options.conflate ? new Conflator<>() : null;
+		this.cache = options.cacheSize > 0 ? new ResultCache<>(options.cacheSize, options.cacheTtl) : null;
+		this.flightKey = options.flightKey;
+		this.stages = new ArrayList<>(options.stages);
+		this.asyncBody = options.asyncBody;
+		this.timeout = options.timeout;
+		this.retry = options.retry;
+	}
+
 	@Override
 	public void run() {
-		doRun(new VarArg<>(null, null, null, null));
+		submit();
 	}
 
 	@Override
 	public void run(A a) {
-		doRun(new VarArg<>(a, null, null, null));
+		submit(a);
 	}
 
 	@Override
 	public void run(A a, B b) {
-		doRun(new VarArg<>(a, b, null, null));
+		submit(a, b);
 	}
 
-	protected abstract void doRun(VarArg<A, B, C, D> varArg);
+	@Override
+	public CompletionStage<R> submit() {
+		return request(new VarArg<>(null, null, null, null));
+	}
+
+	@Override
+	public CompletionStage<R> submit(A a) {
+		return request(new VarArg<>(a, null, null, null));
+	}
+
+	@Override
+	public CompletionStage<R> submit(A a, B b) {
+		return request(new VarArg<>(a, b, null, null));
+	}
+
+	private CompletionStage<R> request(VarArg<A, B, C, D> varArg) {
+		Submission<VarArg<A, B, C, D>, R> submission = new Submission<>(varArg);
+		if (runPolicy == null) {
+			admit(submission);
+		} else {
+			runPolicy.submit(submission, this::admit, Submission::drop);
+		}
+		return submission.result;
+	}
+
+	private void admit(Submission<VarArg<A, B, C, D>, R> submission) {
+		if (conflator == null) {
+			doRun(submission);
+		} else {
+			conflator.submit(submission, this::doRun, Submission::drop);
+		}
+	}
+
+	/**
+	 * Accepts the run and supersedes the previous one, without locks: the
+	 * sequence number comes from the run it replaces, so the order of sequence
+	 * numbers is the order in which runs were accepted.
+	 * <p>
+	 * A superseded run that has dispatched onRun is cancelled, and its
+	 * onComplete is delivered together with the new onRun. A run superseded
+	 * before it got that far reports both itself.
+	 * <p>
+	 * A result cache hit is delivered at once, without the executor.
+	 */
+	protected void doRun(Submission<VarArg<A, B, C, D>, R> submission) {
+		VarArg<A, B, C, D> varArg = submission.arg;
+		Run prev;
+		Run run;
+		do {
+			prev = current.get();
+			run = new Run(prev == null ? 1 : prev.seq + 1, varArg, submission.result);
+		} while (!current.compareAndSet(prev, run));
+
+		Runnable announce = onRun;
+		if (prev != null && prev.supersede()) {
+			announce = () -> {
+				onComplete.run();
+				onRun.run();
+			};
+		}
+
+		ResultCache.Entry<R> hit = cache == null ? null : cache.get(varArg);
+		if (hit != null) {
+			Runnable started = announce;
+			if (run.state.compareAndSet(WorkerState.NEW, WorkerState.IDLE)) {
+				run.result.complete(hit.value);
+				FxDispatcher.dispatch(() -> {
+					started.run();
+					report(hit.value, null);
+				});
+			} else {
+				run.state.set(WorkerState.IDLE);
+				run.result.cancel(false);
+				FxDispatcher.dispatch(() -> {
+					started.run();
+					onComplete.run();
+				});
+			}
+			runFinished(run);
+			return;
+		}
+
+		FxDispatcher.dispatch(announce);
+
+		if (run.state.compareAndSet(WorkerState.NEW, WorkerState.SCHEDULED)) {
+			// the deadline starts here, so it can't fire before expire() handles it
+			if (timeout != null) {
+				Run timed = run;
+				run.timer = WorkersScheduler.schedule(() -> expire(timed), timeout);
+			}
+			attempt(run);
+		} else {
+			// superseded meanwhile by a concurrent run()
+			run.state.set(WorkerState.IDLE);
+			run.result.cancel(false);
+			FxDispatcher.dispatch(onComplete);
+		}
+	}
+
+	/**
+	 * Starts an attempt of a SCHEDULED run.
+	 */
+	private void attempt(Run run) {
+		try {
+			if (flightKey == null) {
+				execute(run);
+			} else {
+				joinFlight(run);
+			}
+		} catch (RuntimeException e) {
+			// rejected by the executor
+			rejected(run, e);
+		}
+	}
+
+	/**
+	 * Fails a run whose task was rejected by the executor, unless it was
+	 * superseded or expired meanwhile.
+	 */
+	private void rejected(Run run, RuntimeException e) {
+		WorkerState s = run.state.get();
+		if ((s == WorkerState.SCHEDULED || s == WorkerState.RUNNING)
+				&& run.state.compareAndSet(s, WorkerState.IDLE)) {
+			run.cancelTimer();
+			run.result.completeExceptionally(e);
+			FxDispatcher.dispatch(() -> report(null, e));
+		}
+		runFinished(run);
+	}
+
+	WorkerState getState() {
+		Run run = current.get();
+		return run == null ? WorkerState.IDLE : run.state.get();
+	}
+
+	/**
+	 * Submits the run. The implementation sets {@link Run#future} and executes
+	 * {@link #call(Run)} in a background thread.
+	 */
+	protected abstract void execute(Run run);
+
+	/**
+	 * Joins an identical execution in flight, possibly of another worker, or
+	 * starts one. Superseding the run cancels only its own subscription; a
+	 * run whose flight was abandoned under it joins another one.
+	 * <p>
+	 * The flight key holds the function, the stages and the arguments, so runs
+	 * of workers built over the same functions share executions.
+	 */
+	private void joinFlight(Run run) {
+		CompletableFuture<R> flight = SingleFlight.join(Arrays.asList(flightKey, stages, run.arg), this::executor,
+				token -> token.call(() -> applyInPlace(run.arg)));
+		run.future = flight;
+		if (!run.state.compareAndSet(WorkerState.SCHEDULED, WorkerState.RUNNING)) {
+			// superseded before the future was set
+			flight.cancel(false);
+			return;
+		}
+		flight.whenComplete((result, throwable) -> {
+			if (throwable instanceof SingleFlight.AbandonedException) {
+				// cancelled by the other subscribers, not by this run
+				if (run.state.compareAndSet(WorkerState.RUNNING, WorkerState.SCHEDULED)) {
+					attempt(run);
+				}
+				return;
+			}
+			if (flight.isCancelled() && run.state.get() != WorkerState.RUNNING) {
+				// superseded or expired
+				return;
+			}
+			if (throwable == null && cache != null) {
+				cache.put(run.arg, result);
+			}
+			complete(run, result, throwable);
+		});
+	}
+
+	/**
+	 * Executes the body and the stages in the current thread, waiting for async
+	 * ones.
+	 */
+	@SuppressWarnings("unchecked")
+	private R applyInPlace(VarArg<A, B, C, D> arg) {
+		Object result = exec(arg);
+		if (asyncBody) {
+			result = Stage.await((CompletionStage<?>) result);
+		}
+		return (R) Stage.applyAll(stages, result);
+	}
+
+	/**
+	 * Executes the run's body and its pipeline stages, and delivers the
+	 * outcome. Skips the body when the run was superseded before it started.
+	 * 
+	 * @return the result, or {@code null} if a stage was handed over to another
+	 *         executor
+	 */
+	protected final R call(Run run) {
+		if (!run.state.compareAndSet(WorkerState.SCHEDULED, WorkerState.RUNNING)) {
+			throw new CancellationException();
+		}
+		Object result;
+		try {
+			result = run.token.call(() -> exec(run.arg));
+			if (asyncBody) {
+				await(run, (CompletionStage<?>) Objects.requireNonNull(result, "async body returned null"));
+				return null;
+			}
+		} catch (RuntimeException | Error e) {
+			complete(run, null, e);
+			throw e;
+		}
+		return advance(run, result, 0);
+	}
+
+	/**
+	 * Continues the run when the stage returned by an async body completes,
+	 * without holding a thread meanwhile. The stage becomes the run's active
+	 * one, so superseding the run cancels it. Pipeline stages continue on the
+	 * worker's executor rather than on the thread that completed the body.
+	 */
+	private void await(Run run, CompletionStage<?> body) {
+		CompletableFuture<?> future = body.toCompletableFuture();
+		run.stage = future;
+		if (run.state.get() != WorkerState.RUNNING) {
+			// superseded before the stage was set
+			future.cancel(true);
+			return;
+		}
+		BiConsumer<Object, Throwable> then = (value, throwable) -> {
+			if (throwable != null) {
+				Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+						? throwable.getCause()
+						: throwable;
+				complete(run, null, cause);
+				return;
+			}
+			try {
+				advance(run, value, 0);
+			} catch (RuntimeException | Error e) {
+				// delivered by advance
+			}
+		};
+		if (stages.isEmpty()) {
+			future.whenComplete(then);
+		} else {
+			future.whenCompleteAsync(then, executor(run));
+		}
+	}
+
+	/**
+	 * Applies stages from {@code from} in the current thread, up to one on
+	 * another executor: that one continues in a task of its own, which becomes
+	 * the run's active stage.
+	 */
+	@SuppressWarnings("unchecked")
+	private R advance(Run run, Object value, int from) {
+		try {
+			for (int i = from; i < stages.size(); i++) {
+				if (run.state.get() != WorkerState.RUNNING) {
+					// superseded between stages
+					throw new CancellationException();
+				}
+				Stage stage = stages.get(i);
+				Executor executor = stage.executor();
+				if (executor != null) {
+					handOver(run, stage, value, i, executor);
+					return null;
+				}
+				value = stage.apply(value);
+			}
+		} catch (RuntimeException | Error e) {
+			complete(run, null, e);
+			throw e;
+		}
+		R result = (R) value;
+		if (cache != null) {
+			cache.put(run.arg, result);
+		}
+		complete(run, result, null);
+		return result;
+	}
+
+	private void handOver(Run run, Stage stage, Object value, int index, Executor executor) {
+		FutureTask<R> task = new FutureTask<>(() -> {
+			Object next;
+			try {
+				next = stage.apply(value);
+			} catch (RuntimeException | Error e) {
+				complete(run, null, e);
+				throw e;
+			}
+			return advance(run, next, index + 1);
+		});
+		run.stage = task;
+		if (run.state.get() != WorkerState.RUNNING) {
+			// superseded before the stage was set
+			return;
+		}
+		executor.execute(task);
+	}
+
+	/**
+	 * Delivers the outcome of a run to its future and then to the FX thread,
+	 * unless a newer run was accepted meanwhile: stale outcomes are dropped
+	 * here, without taking a slot in the FX queue. The newer run reports
+	 * onComplete for this one.
+	 */
+	private void complete(Run run, R result, Throwable throwable) {
+		if (throwable != null && retry(run, throwable)) {
+			return;
+		}
+		if (current.get() == run && run.state.compareAndSet(WorkerState.RUNNING, WorkerState.IDLE)) {
+			run.cancelTimer();
+			if (throwable == null) {
+				run.result.complete(result);
+			} else {
+				run.result.completeExceptionally(throwable);
+			}
+			FxDispatcher.dispatch(() -> report(result, throwable));
+		} else {
+			run.result.cancel(false);
+			WorkersMetrics.INSTANCE.suppressedResults.increment();
+		}
+		runFinished(run);
+	}
+
+	/**
+	 * Schedules another attempt of a failed run on the timer, without going
+	 * through the FX thread. The pending attempt is the run's active stage
+	 * meanwhile, so superseding the run or its timeout cancels it.
+	 * 
+	 * @return false if the failure is final
+	 */
+	private boolean retry(Run run, Throwable throwable) {
+		if (retry == null || current.get() != run || !retry.shouldRetry(run.attempts, throwable)
+				|| !run.state.compareAndSet(WorkerState.RUNNING, WorkerState.SCHEDULED)) {
+			return false;
+		}
+		WorkersMetrics.INSTANCE.retries.increment();
+		Duration delay = retry.delay(run.attempts);
+		run.attempts++;
+		ScheduledFuture<?> next = WorkersScheduler.schedule(() -> {
+			if (run.state.get() == WorkerState.SCHEDULED) {
+				attempt(run);
+			}
+		}, delay);
+		run.stage = next;
+		if (run.state.get() != WorkerState.SCHEDULED) {
+			// superseded before the stage was set
+			next.cancel(false);
+		}
+		return true;
+	}
+
+	/**
+	 * executes in the timer thread
+	 * <p>
+	 * Cancels a run that missed its deadline, like a superseded one, and
+	 * reports a {@link TimeoutException} for it: the interrupt and the token
+	 * free the pool thread unless the body ignores both, and its late outcome
+	 * is dropped.
+	 */
+	private void expire(Run run) {
+		TimeoutException e = new TimeoutException("run timed out after " + timeout);
+		if (!run.expire(e)) {
+			return;
+		}
+		WorkersMetrics.INSTANCE.timeouts.increment();
+		if (current.get() == run) {
+			FxDispatcher.dispatch(() -> report(null, e));
+		} else {
+			// superseded meanwhile: the newer run didn't get to cancel it
+			FxDispatcher.dispatch(onComplete);
+		}
+		runFinished(run);
+	}
+
+	/**
+	 * executes in FxApplicationThread
+	 */
+	private void report(R result, Throwable throwable) {
+		if (throwable == null) {
+			onSuccess.accept(result);
+		} else {
+			onError.accept(throwable);
+		}
+		onComplete.run();
+	}
+
+	private void runFinished(Run run) {
+		if (run.finished.compareAndSet(false, true) && conflator != null) {
+			conflator.done(this::doRun);
+		}
+	}
 
 	protected abstract R exec(VarArg<A, B, C, D> arg);
+
+	protected final class Run {
+
+		final long seq;
+		final VarArg<A, B, C, D> arg;
+		final AtomicReference<WorkerState> state = new AtomicReference<>(WorkerState.NEW);
+
+		/** returned by submit, completed before the FX callbacks */
+		final CompletableFuture<R> result;
+
+		/** tripped when the run is superseded or times out */
+		final CancellationSource token = new CancellationSource();
+
+		/** the run was reported over to the conflator */
+		final AtomicBoolean finished = new AtomicBoolean();
+
+		/** expires the run after the timeout */
+		volatile ScheduledFuture<?> timer;
+
+		/** attempts started, published to the next one by the timer */
+		volatile int attempts = 1;
+
+		/** cancellation handle, set by the implementation */
+		volatile Future<?> future;
+
+		/** pipeline stage running on another executor */
+		volatile Future<?> stage;
+
+		Run(long seq, VarArg<A, B, C, D> arg, CompletableFuture<R> result) {
+			this.seq = seq;
+			this.arg = arg;
+			this.result = result;
+		}
+
+		/**
+		 * Moves the run to CANCELLING and cancels it, tripping its token before
+		 * the interrupt.
+		 * 
+		 * @return true if the caller has to report onComplete for this run
+		 */
+		boolean supersede() {
+			while (true) {
+				WorkerState s = state.get();
+				switch (s) {
+				case NEW:
+					if (state.compareAndSet(s, WorkerState.CANCELLING)) {
+						token.cancel();
+						// the thread that accepted it will see this and report it
+						return false;
+					}
+					break;
+				case SCHEDULED:
+				case RUNNING:
+					if (state.compareAndSet(s, WorkerState.CANCELLING)) {
+						result.cancel(false);
+						stop();
+						return true;
+					}
+					break;
+				default:
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * Cancels the run if it is still in progress, completing its future with
+		 * {@code e} if it is the current one.
+		 * 
+		 * @return true if the caller has to report the run
+		 */
+		boolean expire(TimeoutException e) {
+			while (true) {
+				WorkerState s = state.get();
+				if (s != WorkerState.SCHEDULED && s != WorkerState.RUNNING) {
+					return false;
+				}
+				if (state.compareAndSet(s, WorkerState.CANCELLING)) {
+					if (current.get() == this) {
+						result.completeExceptionally(e);
+					} else {
+						result.cancel(false);
+					}
+					stop();
+					return true;
+				}
+			}
+		}
+
+		private void stop() {
+			cancelTimer();
+			token.cancel();
+			Future<?> f = future;
+			if (f != null) {
+				f.cancel(true);
+			}
+			f = stage;
+			if (f != null) {
+				f.cancel(true);
+			}
+			state.set(WorkerState.IDLE);
+		}
+
+		void cancelTimer() {
+			ScheduledFuture<?> t = timer;
+			if (t != null) {
+				t.cancel(false);
+			}
+		}
+	}
 }
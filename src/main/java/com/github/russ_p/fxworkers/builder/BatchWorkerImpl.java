@@ -0,0 +1,181 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.github.russ_p.fxworkers.FunctionWorker;
+
+/**
+ * Collects run arguments into batches and executes each batch with one bulk
+ * call. A batch is closed when it reaches the maximum size or when the window
+ * opened by its first argument ends.
+ * <p>
+ * Batches don't supersede each other. onRun, onError and onComplete are
+ * called once per batch, the result callback once per key found in the bulk
+ * result. Futures returned by {@link #submit(Object)} are completed for the
+ * whole batch before the callbacks are dispatched, with {@code null} for keys
+ * missing from the bulk result.
+ */
+class BatchWorkerImpl<T, R> implements FunctionWorker<T, R>, ConfigurableWorker {
+
+	private final Function<List<T>, Map<T, R>> func;
+	private final BiConsumer<T, R> onResult;
+	private final Consumer<Throwable> onError;
+	private final Runnable onRun;
+	private final Runnable onComplete;
+	private final Duration window;
+	private final int maxBatchSize;
+
+	private Executor executor;
+
+	private String lane;
+
+	private WorkerGroup group;
+
+	private Supplier<WorkerPriority> priority;
+
+	// guarded by pending
+	private final Map<T, CompletableFuture<R>> pending = new LinkedHashMap<>();
+	private ScheduledFuture<?> timer;
+
+	BatchWorkerImpl(Function<List<T>, Map<T, R>> func, BiConsumer<T, R> onResult, Consumer<Throwable> onError,
+			Runnable onRun, Runnable onComplete, Duration window, int maxBatchSize) {
+		this.func = func;
+		this.onResult = onResult;
+		this.onError = onError;
+		this.onRun = onRun;
+		this.onComplete = onComplete;
+		this.window = window;
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	@Override
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	private Executor executor(Consumer<RuntimeException> rejected) {
+		Executor e = executor;
+		if (e == null) {
+			e = lane == null ? WorkersBuilder.defaultExecutor() : WorkerLane.get(lane).getExecutor();
+		}
+		return WorkerGroup.scheduled(e, group, priority, rejected);
+	}
+
+	@Override
+	public void configure(WorkerOptions options) {
+		this.lane = options.lane;
+		this.group = options.group == null ? null : WorkerGroup.get(options.group);
+		this.priority = options.priority;
+	}
+
+	/**
+	 * Adds {@code t} to the open batch; equal arguments within a batch are
+	 * executed once.
+	 */
+	@Override
+	public void run(T t) {
+		submit(t);
+	}
+
+	@Override
+	public CompletionStage<R> submit(T t) {
+		Map<T, CompletableFuture<R>> batch = null;
+		CompletableFuture<R> result;
+		synchronized (pending) {
+			result = pending.computeIfAbsent(t, k -> new CompletableFuture<>());
+			if (pending.size() >= maxBatchSize) {
+				batch = take();
+			} else if (timer == null) {
+				timer = WorkersScheduler.schedule(this::flush, window);
+			}
+		}
+		if (batch != null) {
+			execute(batch);
+		}
+		return result;
+	}
+
+	/**
+	 * executes in the timer thread
+	 */
+	private void flush() {
+		Map<T, CompletableFuture<R>> batch;
+		synchronized (pending) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			batch = take();
+		}
+		execute(batch);
+	}
+
+	// guarded by pending
+	private Map<T, CompletableFuture<R>> take() {
+		if (timer != null) {
+			timer.cancel(false);
+			timer = null;
+		}
+		Map<T, CompletableFuture<R>> batch = new LinkedHashMap<>(pending);
+		pending.clear();
+		return batch;
+	}
+
+	private void execute(Map<T, CompletableFuture<R>> batch) {
+		WorkersMetrics.INSTANCE.batches.increment();
+		WorkersMetrics.INSTANCE.batchedRuns.add(batch.size());
+		FxDispatcher.dispatch(onRun);
+		List<T> keys = new ArrayList<>(batch.keySet());
+		try {
+			executor(e -> fail(keys, batch, e)).execute(() -> exec(keys, batch));
+		} catch (RuntimeException e) {
+			// rejected by the executor
+			fail(keys, batch, e);
+		}
+	}
+
+	private void exec(List<T> keys, Map<T, CompletableFuture<R>> batch) {
+		Map<T, R> results;
+		try {
+			results = func.apply(keys);
+		} catch (RuntimeException | Error e) {
+			fail(keys, batch, e);
+			return;
+		}
+		batch.forEach((key, f) -> f.complete(results == null ? null : results.get(key)));
+		FxDispatcher.dispatch(() -> report(keys, results, null));
+	}
+
+	private void fail(List<T> keys, Map<T, CompletableFuture<R>> batch, Throwable e) {
+		batch.values().forEach(f -> f.completeExceptionally(e));
+		FxDispatcher.dispatch(() -> report(keys, null, e));
+	}
+
+	/**
+	 * executes in FxApplicationThread
+	 */
+	private void report(List<T> batch, Map<T, R> results, Throwable throwable) {
+		if (throwable != null) {
+			onError.accept(throwable);
+		} else if (results != null) {
+			for (T key : batch) {
+				R result = results.get(key);
+				if (result != null || results.containsKey(key)) {
+					onResult.accept(key, result);
+				}
+			}
+		}
+		onComplete.run();
+	}
+}
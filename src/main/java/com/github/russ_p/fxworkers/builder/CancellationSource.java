@@ -0,0 +1,142 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.github.russ_p.fxworkers.CancellationToken;
+
+/**
+ * Token of one execution. The body reaches it through {@link #current()}: the
+ * execution binds its token to the thread for the duration of the body.
+ * <p>
+ * Hooks may block, like cancelling a statement on the database, and a token
+ * is cancelled in the FX Application thread or the shared timer thread, so
+ * hooks run in a small pool of their own.
+ */
+final class CancellationSource implements CancellationToken {
+
+	/** token of code running outside of a worker run, never cancelled */
+	private static final CancellationSource NONE = new CancellationSource();
+
+	private static final ThreadLocal<CancellationSource> CURRENT = new ThreadLocal<>();
+
+	private static volatile ThreadPoolExecutor hookExecutor;
+
+	private volatile boolean cancelled;
+
+	// guarded by this, null once cancelled
+	private List<Runnable> hooks = new ArrayList<>();
+
+	static CancellationToken current() {
+		CancellationSource source = CURRENT.get();
+		return source == null ? NONE : source;
+	}
+
+	/**
+	 * Executes {@code body} in the current thread with this token bound.
+	 */
+	<V> V call(Supplier<V> body) {
+		CancellationSource prev = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return body.get();
+		} finally {
+			if (prev == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(prev);
+			}
+		}
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public void onCancel(Runnable hook) {
+		if (this == NONE) {
+			return;
+		}
+		synchronized (this) {
+			if (hooks != null) {
+				hooks.add(hook);
+				return;
+			}
+		}
+		runHook(hook);
+	}
+
+	/**
+	 * Trips the token and hands the hooks over to the hook pool, once.
+	 */
+	void cancel() {
+		List<Runnable> pending;
+		synchronized (this) {
+			if (hooks == null) {
+				return;
+			}
+			cancelled = true;
+			pending = hooks;
+			hooks = null;
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		Runnable task = () -> pending.forEach(CancellationSource::runHook);
+		try {
+			hookExecutor().execute(task);
+		} catch (RejectedExecutionException e) {
+			// shut down meanwhile
+			task.run();
+		}
+	}
+
+	/**
+	 * Stops the hook threads once they finish; the pool is created again on
+	 * next use.
+	 */
+	static void shutdown() {
+		ThreadPoolExecutor e;
+		synchronized (CancellationSource.class) {
+			e = hookExecutor;
+			hookExecutor = null;
+		}
+		if (e != null) {
+			e.shutdown();
+		}
+	}
+
+	private static ThreadPoolExecutor hookExecutor() {
+		ThreadPoolExecutor e = hookExecutor;
+		if (e == null) {
+			synchronized (CancellationSource.class) {
+				e = hookExecutor;
+				if (e == null) {
+					int threads = ExecutorProviders.threadsFor(1);
+					e = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+							new WorkerThreadFactory("fx-workers-cancel"));
+					e.allowCoreThreadTimeOut(true);
+					hookExecutor = e;
+				}
+			}
+		}
+		return e;
+	}
+
+	private static void runHook(Runnable hook) {
+		try {
+			hook.run();
+		} catch (RuntimeException e) {
+			// one failing hook must not keep the others from running
+			Thread t = Thread.currentThread();
+			t.getUncaughtExceptionHandler().uncaughtException(t, e);
+		}
+	}
+}
@@ -0,0 +1,9 @@
+package com.github.russ_p.fxworkers.builder;
+
+/**
+ * Worker implementation that accepts builder options.
+ */
+interface ConfigurableWorker {
+
+	void configure(WorkerOptions options);
+}
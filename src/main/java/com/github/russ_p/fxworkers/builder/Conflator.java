@@ -0,0 +1,52 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Latest-wins run conflation: at most one run in flight and one pending.
+ * A run requested while another is in flight replaces the pending one and
+ * starts when the current run reports {@link #done(Consumer)}; the one it
+ * replaces is passed to the drop callback.
+ */
+final class Conflator<V> {
+
+	private final AtomicReference<V> pending = new AtomicReference<>();
+	private final AtomicBoolean busy = new AtomicBoolean();
+
+	void submit(V arg, Consumer<? super V> start, Consumer<? super V> drop) {
+		V replaced = pending.getAndSet(arg);
+		if (replaced != null) {
+			drop.accept(replaced);
+		}
+		if (busy.compareAndSet(false, true) && !startPending(start)) {
+			release(start);
+		}
+	}
+
+	/**
+	 * Must be called once for every started run, after its result is
+	 * delivered.
+	 */
+	void done(Consumer<? super V> start) {
+		if (!startPending(start)) {
+			release(start);
+		}
+	}
+
+	private void release(Consumer<? super V> start) {
+		do {
+			busy.set(false);
+		} while (pending.get() != null && busy.compareAndSet(false, true) && !startPending(start));
+	}
+
+	private boolean startPending(Consumer<? super V> start) {
+		V arg = pending.getAndSet(null);
+		if (arg == null) {
+			return false;
+		}
+		start.accept(arg);
+		return true;
+	}
+}
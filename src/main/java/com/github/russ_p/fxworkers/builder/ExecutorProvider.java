@@ -0,0 +1,26 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Source of the executor that runs worker bodies.
+ *
+ * @see ExecutorProviders
+ * @see WorkersBuilder#setExecutorProvider(ExecutorProvider)
+ */
+public interface ExecutorProvider {
+
+	/**
+	 * @return the executor, created on first use
+	 */
+	Executor getExecutor();
+
+	/**
+	 * Stops accepting new tasks and waits up to {@code timeout} for running ones,
+	 * then interrupts them. A later {@link #getExecutor()} creates a new
+	 * executor. Does nothing for executors not owned by the provider.
+	 */
+	default void shutdown(Duration timeout) {
+	}
+}
@@ -0,0 +1,115 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Factory methods for {@link ExecutorProvider}. Pools created here use named
+ * daemon threads and are created lazily, on the first run.
+ */
+public final class ExecutorProviders {
+
+	private static final String THREAD_PREFIX = "fx-workers";
+
+	private ExecutorProviders() {
+	}
+
+	/**
+	 * @return fixed pool of one thread per available core
+	 */
+	public static ExecutorProvider defaultProvider() {
+		return perCore(1);
+	}
+
+	public static ExecutorProvider fixed(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads < 1");
+		}
+		return new ManagedProvider(() -> Executors.newFixedThreadPool(threads, new WorkerThreadFactory(THREAD_PREFIX)));
+	}
+
+	/**
+	 * @param threadsPerCore pool size relative to
+	 *                       {@link Runtime#availableProcessors()}, use values
+	 *                       above 1 for blocking I/O
+	 */
+	public static ExecutorProvider perCore(double threadsPerCore) {
+		return fixed(threadsFor(threadsPerCore));
+	}
+
+	/**
+	 * @return work-stealing {@link ForkJoinPool} with one thread per core
+	 */
+	public static ExecutorProvider workStealing() {
+		return workStealing(Runtime.getRuntime().availableProcessors());
+	}
+
+	public static ExecutorProvider workStealing(int parallelism) {
+		return new ManagedProvider(
+				() -> new ForkJoinPool(parallelism, new WorkerThreadFactory(THREAD_PREFIX), null, true));
+	}
+
+	/**
+	 * @return provider of an executor managed by the caller, never shut down
+	 *         by the provider
+	 */
+	public static ExecutorProvider of(Executor executor) {
+		return () -> executor;
+	}
+
+	static int threadsFor(double threadsPerCore) {
+		return Math.max(1, (int) Math.round(Runtime.getRuntime().availableProcessors() * threadsPerCore));
+	}
+
+	private static final class ManagedProvider implements ExecutorProvider {
+
+		private final Supplier<ExecutorService> factory;
+
+		private volatile ExecutorService executor;
+
+		ManagedProvider(Supplier<ExecutorService> factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public Executor getExecutor() {
+			ExecutorService e = executor;
+			if (e == null) {
+				synchronized (this) {
+					e = executor;
+					if (e == null) {
+						e = factory.get();
+						executor = e;
+					}
+				}
+			}
+			return e;
+		}
+
+		@Override
+		public void shutdown(Duration timeout) {
+			ExecutorService e;
+			synchronized (this) {
+				e = executor;
+				executor = null;
+			}
+			if (e == null) {
+				return;
+			}
+			e.shutdown();
+			try {
+				if (!e.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+					e.shutdownNow();
+				}
+			} catch (InterruptedException ex) {
+				e.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
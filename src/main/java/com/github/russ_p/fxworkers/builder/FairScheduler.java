@@ -0,0 +1,332 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hands the queued tasks of worker groups to their pools, weighted-fair:
+ * start-time fair queuing over the groups, where a group's share of the slots
+ * it competes for is proportional to its weight.
+ * <p>
+ * Grouped tasks take at most as many slots of a pool as the pool has threads,
+ * so they wait in the group queues, not in the pool's FIFO queue. A freed slot
+ * goes to the group with the smallest virtual start time among those below
+ * their limit. Within a group, tasks are taken by {@link WorkerPriority}
+ * deadline; running tasks are never preempted. Tasks of workers without a
+ * group or priority go to the pool directly unless its slots are all taken,
+ * see {@link WorkerGroup}. Tasks that don't come from a worker, like pipeline
+ * stages handed to another lane or work submitted to a pool by the
+ * application, are not seen here and take threads as the pool gives them.
+ * <p>
+ * The slot limit of a pool is looked up when its first task is dispatched and
+ * dropped when its last one is done, so resized and replaced pools are not
+ * held. A task rejected by its pool goes to the handler it was submitted
+ * with, since it may be dispatched later, in the thread of a task that freed a
+ * slot.
+ * <p>
+ * A task that waits in its thread, like a retry backoff, can leave its
+ * group's limit meanwhile with {@link #sleep(long)}; it keeps the pool slot,
+ * since it keeps the thread.
+ */
+final class FairScheduler {
+
+	static final Object LOCK = new Object();
+
+	// guarded by LOCK
+	private static final List<WorkerGroup> BACKLOGGED = new ArrayList<>();
+	/** written under LOCK, read without it by {@link #isSaturated(Executor)} */
+	private static final Map<Executor, Slots> SLOTS = new ConcurrentHashMap<>();
+	private static double virtualTime;
+	private static long sequence;
+
+	/** the scheduled task running in the current thread */
+	private static final ThreadLocal<Task> CURRENT = new ThreadLocal<>();
+
+	private FairScheduler() {
+	}
+
+	/**
+	 * @param rejected gets the exception if the pool rejects the task, in the
+	 *                 thread that dispatches it
+	 */
+	static void submit(WorkerGroup group, Executor target, WorkerPriority priority, Runnable command,
+			Consumer<RuntimeException> rejected) {
+		List<Task> ready;
+		synchronized (LOCK) {
+			group.submitted++;
+			ready = enqueue(new Task(group, target, priority, command, rejected, sequence++));
+		}
+		start(ready);
+	}
+
+	/**
+	 * Sleeps in the thread of a scheduled task without counting it against its
+	 * group's limit: other tasks of the group can start meanwhile, on other
+	 * threads. Then the task waits for its group again, by its original
+	 * deadline. In other threads, just sleeps.
+	 * <p>
+	 * If interrupted, the task goes on outside the limit: it is being
+	 * cancelled.
+	 */
+	static void sleep(long nanos) throws InterruptedException {
+		Task task = CURRENT.get();
+		if (task == null) {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+			return;
+		}
+		List<Task> ready;
+		synchronized (LOCK) {
+			task.counted = false;
+			task.group.active--;
+			ready = take();
+		}
+		start(ready);
+		TimeUnit.NANOSECONDS.sleep(nanos);
+
+		CountDownLatch granted = new CountDownLatch(1);
+		Task resume;
+		synchronized (LOCK) {
+			resume = new Task(task, granted::countDown, sequence++);
+			ready = enqueue(resume);
+		}
+		start(ready);
+		try {
+			granted.await();
+		} catch (InterruptedException e) {
+			synchronized (LOCK) {
+				if (!task.counted && resume.group.queue.remove(resume) && resume.group.queue.isEmpty()) {
+					BACKLOGGED.remove(resume.group);
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Changes group settings, then dispatches what they allow.
+	 */
+	static void update(Runnable change) {
+		List<Task> ready;
+		synchronized (LOCK) {
+			change.run();
+			ready = take();
+		}
+		start(ready);
+	}
+
+	private static void done(Task task) {
+		List<Task> ready;
+		synchronized (LOCK) {
+			if (task.counted) {
+				task.group.active--;
+			}
+			if (--task.slots.used == 0) {
+				SLOTS.remove(task.target, task.slots);
+			}
+			ready = take();
+		}
+		start(ready);
+	}
+
+	// guarded by LOCK
+	private static List<Task> enqueue(Task task) {
+		WorkerGroup group = task.group;
+		if (group.queue.isEmpty()) {
+			group.start = Math.max(virtualTime, group.finish);
+			BACKLOGGED.add(group);
+		}
+		group.queue.add(task);
+		return take();
+	}
+
+	// guarded by LOCK
+	private static List<Task> take() {
+		List<Task> ready = Collections.emptyList();
+		while (true) {
+			WorkerGroup next = null;
+			for (WorkerGroup group : BACKLOGGED) {
+				Task head = group.queue.peek();
+				// a sleeping task still holds its pool slot
+				if (group.active < group.maxConcurrency && (head.resumes != null || isFree(head.target))
+						&& (next == null || group.start < next.start)) {
+					next = group;
+				}
+			}
+			if (next == null) {
+				return ready;
+			}
+			Task task = next.queue.poll();
+			virtualTime = next.start;
+			next.finish = next.start + 1.0 / next.weight;
+			next.start = next.finish;
+			if (next.queue.isEmpty()) {
+				BACKLOGGED.remove(next);
+			}
+			next.active++;
+			if (task.resumes == null) {
+				task.slots = SLOTS.computeIfAbsent(task.target, t -> new Slots(parallelism(t)));
+				task.slots.used++;
+			} else {
+				task.resumes.counted = true;
+			}
+
+			long wait = System.nanoTime() - task.queued;
+			next.dispatched++;
+			next.waitNanos += wait;
+			next.maxWaitNanos = Math.max(next.maxWaitNanos, wait);
+
+			if (ready.isEmpty()) {
+				ready = new ArrayList<>();
+			}
+			ready.add(task);
+		}
+	}
+
+	/**
+	 * Executes dispatched tasks on their pools, and wakes sleeping ones. A
+	 * rejection frees the slot and goes to the task's owner: the calling thread
+	 * may be a pool thread that just finished another task.
+	 */
+	private static void start(List<Task> ready) {
+		for (Task task : ready) {
+			if (task.resumes != null) {
+				task.command.run();
+				continue;
+			}
+			try {
+				task.target.execute(task);
+			} catch (RuntimeException e) {
+				done(task);
+				task.rejected.accept(e);
+			}
+		}
+	}
+
+	/**
+	 * Tells, without the lock, whether scheduled tasks take all slots of
+	 * {@code target}. A stale answer only sends a task to the pool's queue, or
+	 * through the scheduler to a slot that was just freed.
+	 */
+	static boolean isSaturated(Executor target) {
+		Slots slots = SLOTS.get(target);
+		return slots != null && !slots.isFree();
+	}
+
+	// guarded by LOCK
+	private static boolean isFree(Executor target) {
+		Slots slots = SLOTS.get(target);
+		return slots == null || slots.isFree();
+	}
+
+	/**
+	 * @return tasks the pool runs at once: the lane's thread limit, the size of
+	 *         a known pool, or no limit for other executors, like those of
+	 *         virtual threads, which queue or reject excess work on their own
+	 */
+	private static int parallelism(Executor target) {
+		int threads = WorkerLane.threadsOf(target);
+		if (threads == 0) {
+			// no thread limit
+			return Integer.MAX_VALUE;
+		}
+		if (threads > 0) {
+			return threads;
+		}
+		if (target instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) target).getMaximumPoolSize();
+		}
+		if (target instanceof ForkJoinPool) {
+			return ((ForkJoinPool) target).getParallelism();
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Slots of one pool taken by grouped tasks.
+	 */
+	private static final class Slots {
+
+		final int limit;
+		// written under LOCK
+		volatile int used;
+
+		Slots(int limit) {
+			this.limit = limit;
+		}
+
+		boolean isFree() {
+			return used < limit;
+		}
+	}
+
+	static final class Task implements Runnable, Comparable<Task> {
+
+		final WorkerGroup group;
+		final Executor target;
+		final Runnable command;
+		final Consumer<RuntimeException> rejected;
+		final long queued = System.nanoTime();
+		final long deadline;
+		/** queue order among equal deadlines */
+		final long seq;
+		/** the sleeping task this one wakes, instead of running on the pool */
+		final Task resumes;
+		/** taken when dispatched, guarded by LOCK */
+		Slots slots;
+		/** counts against the group's limit, guarded by LOCK */
+		boolean counted = true;
+
+		Task(WorkerGroup group, Executor target, WorkerPriority priority, Runnable command,
+				Consumer<RuntimeException> rejected, long seq) {
+			this.group = group;
+			this.target = target;
+			this.command = command;
+			this.rejected = rejected;
+			this.deadline = priority.deadline(queued);
+			this.seq = seq;
+			this.resumes = null;
+		}
+
+		Task(Task sleeping, Runnable wake, long seq) {
+			this.group = sleeping.group;
+			this.target = sleeping.target;
+			this.command = wake;
+			this.rejected = sleeping.rejected;
+			this.deadline = sleeping.deadline;
+			this.seq = seq;
+			this.resumes = sleeping;
+		}
+
+		@Override
+		public int compareTo(Task o) {
+			// nanoTime values are compared by difference
+			long d = deadline - o.deadline;
+			if (d != 0) {
+				return d < 0 ? -1 : 1;
+			}
+			return Long.compare(seq, o.seq);
+		}
+
+		@Override
+		public void run() {
+			// a pool that runs tasks in the caller's thread nests them
+			Task outer = CURRENT.get();
+			CURRENT.set(this);
+			try {
+				command.run();
+			} finally {
+				CURRENT.set(outer);
+				done(this);
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Shared FX-thread dispatcher for worker callbacks.
+ * <p>
+ * Callbacks posted from background threads are collected in one lock-free
+ * queue and drained by a single {@link Platform#runLater(Runnable)} per pulse,
+ * instead of one {@code runLater} per lifecycle event. Callbacks posted from
+ * the FX Application thread run inline unless older callbacks are still
+ * queued.
+ * <p>
+ * When a frame budget is set, a drain stops once the budget is spent and the
+ * rest of the queue spills into the next pulse, in the same order.
+ * <p>
+ * Callbacks that must not run before the current changes are rendered, like
+ * the next chunk of a list, are held back for a later pulse and then run
+ * through the queue, within the budget.
+ */
+final class FxDispatcher {
+
+	private static final Queue<Runnable> QUEUE = new ConcurrentLinkedQueue<>();
+
+	private static final AtomicBoolean SCHEDULED = new AtomicBoolean();
+
+	private static volatile long budgetNanos;
+
+	// created on first use: AnimationTimer needs a running toolkit
+	private static AnimationTimer pulse;
+
+	// accessed in FxApplicationThread
+	private static final Queue<Deferred> DEFERRED = new ArrayDeque<>();
+	private static long pulses;
+	private static boolean inPulse;
+
+	private FxDispatcher() {
+	}
+
+	static void setFrameBudget(Duration budget) {
+		budgetNanos = budget == null ? 0 : budget.toNanos();
+	}
+
+	static void dispatch(Runnable callback) {
+		if (Platform.isFxApplicationThread() && QUEUE.isEmpty()) {
+			callback.run();
+			return;
+		}
+		WorkersMetrics.INSTANCE.pendingCallbacks.increment();
+		QUEUE.offer(callback);
+		if (SCHEDULED.compareAndSet(false, true)) {
+			Platform.runLater(FxDispatcher::drain);
+		}
+	}
+
+	/**
+	 * Runs {@code callback} on a pulse after the one that renders the current
+	 * changes; executes in FxApplicationThread.
+	 */
+	static void dispatchAfterPulse(Runnable callback) {
+		// a pulse in progress renders the current changes, otherwise the next one does
+		DEFERRED.add(new Deferred(inPulse ? pulses : pulses + 1, callback));
+		startPulse();
+	}
+
+	/**
+	 * executes in FxApplicationThread
+	 */
+	private static void drain() {
+		long budget = budgetNanos;
+		long start = System.nanoTime();
+		do {
+			Runnable callback;
+			while ((callback = QUEUE.poll()) != null) {
+				WorkersMetrics.INSTANCE.pendingCallbacks.decrement();
+				execute(callback);
+				if (budget > 0 && System.nanoTime() - start >= budget && !QUEUE.isEmpty()) {
+					spill();
+					return;
+				}
+			}
+			// reset after draining and re-check: a producer that saw SCHEDULED set relies on this pass
+			SCHEDULED.set(false);
+		} while (!QUEUE.isEmpty() && SCHEDULED.compareAndSet(false, true));
+
+		if (pulse != null && DEFERRED.isEmpty()) {
+			pulse.stop();
+		}
+	}
+
+	/**
+	 * Leaves SCHEDULED set, so producers don't post extra drains before the next
+	 * pulse picks the queue up again.
+	 */
+	private static void spill() {
+		WorkersMetrics.INSTANCE.deferredDrains.increment();
+		WorkersMetrics.INSTANCE.deferredCallbacks.add(WorkersMetrics.INSTANCE.pendingCallbacks.sum());
+		startPulse();
+	}
+
+	private static void startPulse() {
+		if (pulse == null) {
+			pulse = new AnimationTimer() {
+
+				@Override
+				public void handle(long now) {
+					pulse();
+				}
+			};
+		}
+		pulse.start();
+	}
+
+	/**
+	 * Queues the held back callbacks that are due, then drains.
+	 */
+	private static void pulse() {
+		pulses++;
+		inPulse = true;
+		try {
+			Deferred deferred;
+			while ((deferred = DEFERRED.peek()) != null && deferred.after < pulses) {
+				DEFERRED.poll();
+				WorkersMetrics.INSTANCE.pendingCallbacks.increment();
+				QUEUE.offer(deferred.callback);
+			}
+			drain();
+		} finally {
+			inPulse = false;
+		}
+	}
+
+	private static void execute(Runnable callback) {
+		try {
+			callback.run();
+		} catch (Throwable t) {
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+		}
+	}
+
+	private static final class Deferred {
+
+		/** the last pulse the callback must not run in */
+		final long after;
+		final Runnable callback;
+
+		Deferred(long after, Runnable callback) {
+			this.after = after;
+			this.callback = callback;
+		}
+	}
+}
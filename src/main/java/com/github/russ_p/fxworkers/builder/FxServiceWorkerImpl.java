@@ -1,24 +1,51 @@
 package com.github.russ_p.fxworkers.builder;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-import com.github.russ_p.fxworkers.BiArgWorker;
-import com.github.russ_p.fxworkers.UniArgWorker;
-import com.github.russ_p.fxworkers.ZeroArgWorker;
+import com.github.russ_p.fxworkers.BiFunctionWorker;
+import com.github.russ_p.fxworkers.FunctionWorker;
+import com.github.russ_p.fxworkers.SupplierWorker;
 
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 
 abstract class FxServiceWorkerImpl<A, B, C, D, R> extends Service<R>
-		implements ZeroArgWorker, UniArgWorker<A>, BiArgWorker<A, B> {
+		implements SupplierWorker<R>, FunctionWorker<A, R>, BiFunctionWorker<A, B, R>, ConfigurableWorker {
 
-	private final AtomicReference<VarArg<A, B, C, D>> varArg = new AtomicReference<>();
+	private final AtomicReference<Submission<VarArg<A, B, C, D>, R>> submission = new AtomicReference<>();
 	private final Consumer<R> onSuccess;
 	private final Consumer<Throwable> onError;
 	private final Runnable onRun;
 	private final Runnable onComplete;
 
+	private RunPolicy runPolicy;
+
+	private Conflator<Submission<VarArg<A, B, C, D>, R>> conflator;
+
+	private List<Stage> stages = Collections.emptyList();
+
+	private boolean asyncBody;
+
+	private Duration timeout;
+
+	private Retry retry;
+
+	/**
+	 * the task being executed: Service creates and executes it in one call,
+	 * in FxApplicationThread
+	 */
+	private RunTask created;
+
 	public FxServiceWorkerImpl(Consumer<R> onSuccess, Consumer<Throwable> onError, Runnable onRun, Runnable onComplete) {
 		this.onSuccess = onSuccess;
 		this.onError = onError;
@@ -26,22 +53,95 @@ abstract class FxServiceWorkerImpl<A, B, C, D, R> extends Service<R>
 		this.onComplete = onComplete;
 	}
 
+	@Override
+	public void configure(WorkerOptions options) {
+		WorkerGroup group = options.group == null ? null : WorkerGroup.get(options.group);
+		Supplier<WorkerPriority> priority = options.priority;
+		Executor own = getExecutor();
+		if (own == null) {
+			String lane = options.lane;
+			setExecutor(command -> {
+				Executor e = lane == null ? WorkersBuilder.defaultExecutor() : WorkerLane.get(lane).getExecutor();
+				WorkerGroup.scheduled(e, group, priority, created::reject).execute(command);
+			});
+		} else {
+			setExecutor(command -> WorkerGroup.scheduled(own, group, priority, created::reject).execute(command));
+		}
+		this.runPolicy = options.runPolicy == null ? null : options.runPolicy.get();
+		this.conflator = options.conflate ? new Conflator<>() : null;
+		this.stages = new ArrayList<>(options.stages);
+		this.asyncBody = options.asyncBody;
+		this.timeout = options.timeout;
+		this.retry = options.retry;
+	}
+
 	@Override
 	public void run() {
-		this.varArg.set(new VarArg<A, B, C, D>(null, null, null, null));
-		super.restart();
+		submit();
 	}
 
 	@Override
 	public void run(A a) {
-		this.varArg.set(new VarArg<A, B, C, D>(a, null, null, null));
-		super.restart();
+		submit(a);
 	}
 
 	@Override
 	public void run(A a, B b) {
-		this.varArg.set(new VarArg<A, B, C, D>(a, b, null, null));
-		super.restart();
+		submit(a, b);
+	}
+
+	@Override
+	public CompletionStage<R> submit() {
+		return request(new VarArg<A, B, C, D>(null, null, null, null));
+	}
+
+	@Override
+	public CompletionStage<R> submit(A a) {
+		return request(new VarArg<A, B, C, D>(a, null, null, null));
+	}
+
+	@Override
+	public CompletionStage<R> submit(A a, B b) {
+		return request(new VarArg<A, B, C, D>(a, b, null, null));
+	}
+
+	private CompletionStage<R> request(VarArg<A, B, C, D> arg) {
+		Submission<VarArg<A, B, C, D>, R> submission = new Submission<>(arg);
+		if (runPolicy == null) {
+			start(submission);
+		} else {
+			runPolicy.submit(submission, this::start, Submission::drop);
+		}
+		return submission.result;
+	}
+
+	private void start(Submission<VarArg<A, B, C, D>, R> submission) {
+		if (conflator == null) {
+			doRun(submission);
+		} else {
+			conflator.submit(submission, this::doRun, Submission::drop);
+		}
+	}
+
+	/**
+	 * executes in FxApplicationThread
+	 */
+	private void runFinished() {
+		if (conflator != null) {
+			conflator.done(this::doRun);
+		}
+	}
+
+	/**
+	 * A submission replaced before its task was created is dropped; the task
+	 * of an earlier one is cancelled by the restart.
+	 */
+	private void doRun(Submission<VarArg<A, B, C, D>, R> next) {
+		Submission<VarArg<A, B, C, D>, R> prev = this.submission.getAndSet(next);
+		if (prev != null) {
+			prev.drop();
+		}
+		FxDispatcher.dispatch(super::restart);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -58,45 +158,173 @@ abstract class FxServiceWorkerImpl<A, B, C, D, R> extends Service<R>
 
 	@Override
 	protected Task<R> createTask() {
-		VarArg<A, B, C, D> arg = this.varArg.get();
-		return new Task<R>() {
+		created = new RunTask(submission.get());
+		return created;
+	}
+
+	/**
+	 * Task of one run. Retries wait in the task's thread, since the task is the
+	 * unit that restart() cancels, but outside its group's limit.
+	 */
+	private final class RunTask extends Task<R> {
+
+		private final Submission<VarArg<A, B, C, D>, R> submission;
+		private final VarArg<A, B, C, D> arg;
+
+		// a restart right after success can still cancel the task: report it once
+		private boolean finished;
+
+		private final CancellationSource token = new CancellationSource();
+
+		private volatile ScheduledFuture<?> timer;
+
+		// timeout or rejection, set before the task is cancelled for it
+		private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+		RunTask(Submission<VarArg<A, B, C, D>, R> submission) {
+			this.submission = submission;
+			this.arg = submission.arg;
+		}
 
-			@Override
-			protected R call() throws Exception {
-				return exec(arg);
+		@Override
+		protected R call() throws Exception {
+			R value;
+			try {
+				for (int attempts = 1;; attempts++) {
+					try {
+						value = attempt();
+						break;
+					} catch (Exception | Error e) {
+						if (retry == null || isCancelled() || !retry.shouldRetry(attempts, e)) {
+							throw e;
+						}
+						WorkersMetrics.INSTANCE.retries.increment();
+						FairScheduler.sleep(retry.delay(attempts).toNanos());
+					}
+				}
+			} catch (Exception | Error e) {
+				// a cancelled task is reported by cancel() and cancelled()
+				if (!isCancelled()) {
+					submission.result.completeExceptionally(e);
+				}
+				throw e;
 			}
+			if (!isCancelled()) {
+				submission.result.complete(value);
+			}
+			return value;
+		}
 
-			@Override
-			protected void succeeded() {
-				onSuccess.accept(getValue());
-				onComplete.run();
+		@SuppressWarnings("unchecked")
+		private R attempt() throws Exception {
+			Object result = token.call(() -> exec(arg));
+			if (asyncBody) {
+				result = Stage.await((CompletionStage<?>) result);
 			}
+			return (R) Stage.applyAll(stages, result);
+		}
+
+		@Override
+		protected void succeeded() {
+			finished = true;
+			cancelTimer();
+			onSuccess.accept(getValue());
+			onComplete.run();
+			runFinished();
+		}
+
+		@Override
+		protected void failed() {
+			finished = true;
+			cancelTimer();
+			onError.accept(getException());
+			onComplete.run();
+			runFinished();
+		}
 
-			@Override
-			protected void failed() {
-				onError.accept(getException());
-				onComplete.run();
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				Exception e = failure.get();
+				if (e != null) {
+					submission.result.completeExceptionally(e);
+				}
+				token.cancel();
 			}
+			return cancelled;
+		}
 
-			@Override
-			protected void running() {
-				onRun.run();
+		/**
+		 * executes in the timer thread
+		 */
+		private void expire() {
+			if (fail(new TimeoutException("run timed out after " + timeout), true)) {
+				WorkersMetrics.INSTANCE.timeouts.increment();
 			}
+		}
 
-			protected void scheduled() {
+		/**
+		 * Fails the task rejected by its pool after it waited in a group queue.
+		 */
+		void reject(RuntimeException e) {
+			fail(e, false);
+		}
+
+		private boolean fail(Exception e, boolean mayInterruptIfRunning) {
+			if (!failure.compareAndSet(null, e)) {
+				return false;
+			}
+			if (cancel(mayInterruptIfRunning)) {
+				return true;
 			}
+			// finished meanwhile
+			failure.set(null);
+			return false;
+		}
 
-			@Override
-			protected void cancelled() {
-				onComplete.run();
+		private void cancelTimer() {
+			ScheduledFuture<?> t = timer;
+			if (t != null) {
+				t.cancel(false);
+			}
+		}
+
+		@Override
+		protected void running() {
+			onRun.run();
+		}
+
+		protected void scheduled() {
+			if (timeout != null && timer == null) {
+				timer = WorkersScheduler.schedule(this::expire, timeout);
+			}
+		}
+
+		@Override
+		protected void cancelled() {
+			if (finished) {
+				return;
+			}
+			cancelTimer();
+			// when cancelled in FxApplicationThread, this runs inside cancel(), before
+			// it completes the future
+			Exception e = failure.get();
+			if (e != null) {
+				submission.result.completeExceptionally(e);
+				onError.accept(e);
 			}
-		};
+			submission.drop();
+			onComplete.run();
+			runFinished();
+		}
 	}
 
 	protected abstract R exec(VarArg<A, B, C, D> arg);
 
 	public VarArg<A, B, C, D> getArg() {
-		return varArg.get();
+		Submission<VarArg<A, B, C, D>, R> s = submission.get();
+		return s == null ? null : s.arg;
 	}
 
 }
\ No newline at end of file
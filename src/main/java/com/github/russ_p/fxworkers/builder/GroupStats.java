@@ -0,0 +1,87 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of a worker group's load.
+ *
+ * @see WorkersMetrics#getGroupStats(String)
+ */
+public final class GroupStats {
+
+	private final String name;
+	private final int maxConcurrency;
+	private final int weight;
+	private final int active;
+	private final int queueDepth;
+	private final long submitted;
+	private final Duration averageWait;
+	private final Duration maxWait;
+
+	GroupStats(String name, int maxConcurrency, int weight, int active, int queueDepth, long submitted,
+			Duration averageWait, Duration maxWait) {
+		this.name = name;
+		this.maxConcurrency = maxConcurrency;
+		this.weight = weight;
+		this.active = active;
+		this.queueDepth = queueDepth;
+		this.submitted = submitted;
+		this.averageWait = averageWait;
+		this.maxWait = maxWait;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @return tasks of the group handed to a pool and not finished yet
+	 */
+	public int getActive() {
+		return active;
+	}
+
+	/**
+	 * @return tasks waiting in the group's queue right now
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return tasks submitted since the last reset
+	 */
+	public long getSubmitted() {
+		return submitted;
+	}
+
+	/**
+	 * @return average time tasks dispatched since the last reset waited in the
+	 *         group's queue
+	 */
+	public Duration getAverageWait() {
+		return averageWait;
+	}
+
+	/**
+	 * @return longest wait in the group's queue since the last reset
+	 */
+	public Duration getMaxWait() {
+		return maxWait;
+	}
+
+	@Override
+	public String toString() {
+		return "GroupStats [name=" + name + ", maxConcurrency=" + maxConcurrency + ", weight=" + weight
+				+ ", active=" + active + ", queue=" + queueDepth + ", submitted=" + submitted + ", averageWait="
+				+ averageWait + ", maxWait=" + maxWait + "]";
+	}
+}
@@ -0,0 +1,72 @@
+package com.github.russ_p.fxworkers.builder;
+
+/**
+ * Snapshot of an execution lane's load.
+ *
+ * @see WorkersMetrics#getLaneStats(String)
+ */
+public final class LaneStats {
+
+	private final String name;
+	private final int threads;
+	private final int activeThreads;
+	private final int queueDepth;
+	private final long submitted;
+	private final double utilization;
+
+	LaneStats(String name, int threads, int activeThreads, int queueDepth, long submitted, double utilization) {
+		this.name = name;
+		this.threads = threads;
+		this.activeThreads = activeThreads;
+		this.queueDepth = queueDepth;
+		this.submitted = submitted;
+		this.utilization = utilization;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return pool size, 0 for lanes without a thread limit
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return threads running a task right now
+	 */
+	public int getActiveThreads() {
+		return activeThreads;
+	}
+
+	/**
+	 * @return tasks waiting for a thread right now
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return tasks submitted since the last reset
+	 */
+	public long getSubmitted() {
+		return submitted;
+	}
+
+	/**
+	 * @return share of the lane's thread time spent running tasks since the last
+	 *         reset, from 0 to 1; {@link Double#NaN} for lanes without a thread
+	 *         limit
+	 */
+	public double getUtilization() {
+		return utilization;
+	}
+
+	@Override
+	public String toString() {
+		return "LaneStats [name=" + name + ", threads=" + threads + ", active=" + activeThreads + ", queue="
+				+ queueDepth + ", submitted=" + submitted + ", utilization=" + utilization + "]";
+	}
+}
@@ -0,0 +1,221 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import javafx.collections.ObservableList;
+
+/**
+ * Minimal list of removals, insertions and updates that turns one list into
+ * another, computed with Myers' O(ND) difference algorithm on element keys
+ * after trimming the common prefix and suffix. Elements with equal keys that
+ * are not {@link Object#equals(Object) equal} become updates.
+ * <p>
+ * Operations are kept in descending index order, so each one refers to the
+ * original positions and none shifts the next.
+ */
+final class ListPatch<T> {
+
+	private static final int REMOVE = 0;
+	private static final int ADD = 1;
+	private static final int SET = 2;
+
+	private final List<Op<T>> ops = new ArrayList<>();
+
+	private ListPatch() {
+	}
+
+	/**
+	 * @param maxEdits insertions and removals above which there is no patch
+	 * @return the patch, or {@code null} if it would exceed {@code maxEdits}
+	 */
+	static <T> ListPatch<T> diff(List<T> from, List<T> to, Function<? super T, ?> keyExtractor, int maxEdits) {
+		Object[] a = keys(from, keyExtractor);
+		Object[] b = keys(to, keyExtractor);
+
+		int prefix = 0;
+		int common = Math.min(a.length, b.length);
+		while (prefix < common && Objects.equals(a[prefix], b[prefix])) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < common - prefix
+				&& Objects.equals(a[a.length - 1 - suffix], b[b.length - 1 - suffix])) {
+			suffix++;
+		}
+
+		ListPatch<T> patch = new ListPatch<>();
+		for (int i = 0; i < suffix; i++) {
+			patch.match(from, to, a.length - 1 - i, b.length - 1 - i);
+		}
+		if (!patch.middle(from, to, a, b, prefix, a.length - suffix, b.length - suffix, maxEdits)) {
+			return null;
+		}
+		for (int i = prefix - 1; i >= 0; i--) {
+			patch.match(from, to, i, i);
+		}
+		return patch;
+	}
+
+	private static <T> Object[] keys(List<T> list, Function<? super T, ?> keyExtractor) {
+		Object[] keys = new Object[list.size()];
+		int i = 0;
+		for (T element : list) {
+			keys[i++] = keyExtractor.apply(element);
+		}
+		return keys;
+	}
+
+	/**
+	 * Diffs {@code a[lo, aHi)} against {@code b[lo, bHi)}, walking the edit
+	 * path back from the end.
+	 */
+	private boolean middle(List<T> from, List<T> to, Object[] a, Object[] b, int lo, int aHi, int bHi,
+			int maxEdits) {
+		int n = aHi - lo;
+		int m = bHi - lo;
+		int limit = Math.min(n + m, maxEdits);
+		int offset = limit + 1;
+		int[] v = new int[2 * limit + 3];
+		// trace.get(d): v for k in [-d, d] before step d
+		List<int[]> trace = new ArrayList<>();
+		int found = -1;
+		search: for (int d = 0; d <= limit; d++) {
+			int[] snapshot = new int[2 * d + 1];
+			System.arraycopy(v, offset - d, snapshot, 0, snapshot.length);
+			trace.add(snapshot);
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+					x = v[offset + k + 1];
+				} else {
+					x = v[offset + k - 1] + 1;
+				}
+				int y = x - k;
+				while (x < n && y < m && Objects.equals(a[lo + x], b[lo + y])) {
+					x++;
+					y++;
+				}
+				v[offset + k] = x;
+				if (x >= n && y >= m) {
+					found = d;
+					break search;
+				}
+			}
+		}
+		if (found < 0) {
+			return false;
+		}
+
+		int x = n;
+		int y = m;
+		for (int d = found; d > 0; d--) {
+			int[] prev = trace.get(d);
+			int k = x - y;
+			int prevK;
+			if (k == -d || (k != d && prev[k - 1 + d] < prev[k + 1 + d])) {
+				prevK = k + 1;
+			} else {
+				prevK = k - 1;
+			}
+			int prevX = prev[prevK + d];
+			int prevY = prevX - prevK;
+			int startX = prevK == k + 1 ? prevX : prevX + 1;
+			int startY = prevK == k + 1 ? prevY + 1 : prevY;
+			while (x > startX && y > startY) {
+				x--;
+				y--;
+				match(from, to, lo + x, lo + y);
+			}
+			if (prevK == k + 1) {
+				add(lo + prevX, to.get(lo + prevY));
+			} else {
+				remove(lo + prevX);
+			}
+			x = prevX;
+			y = prevY;
+		}
+		while (x > 0 && y > 0) {
+			x--;
+			y--;
+			match(from, to, lo + x, lo + y);
+		}
+		return true;
+	}
+
+	private void match(List<T> from, List<T> to, int i, int j) {
+		T element = to.get(j);
+		if (!Objects.equals(from.get(i), element)) {
+			ops.add(new Op<>(SET, i, 1, Collections.singletonList(element)));
+		}
+	}
+
+	private void remove(int index) {
+		Op<T> last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+		if (last != null && last.kind == REMOVE && last.index == index + 1) {
+			ops.set(ops.size() - 1, new Op<>(REMOVE, index, last.count + 1, null));
+		} else {
+			ops.add(new Op<>(REMOVE, index, 1, null));
+		}
+	}
+
+	private void add(int index, T element) {
+		Op<T> last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+		if (last != null && last.kind == ADD && last.index == index) {
+			// walking backwards: prepend
+			last.elements.add(0, element);
+		} else {
+			List<T> elements = new ArrayList<>();
+			elements.add(element);
+			ops.add(new Op<>(ADD, index, 1, elements));
+		}
+	}
+
+	boolean isEmpty() {
+		return ops.isEmpty();
+	}
+
+	/**
+	 * @return number of list operations, each one a change event of an
+	 *         observable list
+	 */
+	int size() {
+		return ops.size();
+	}
+
+	/**
+	 * Applies the patch to a list equal to the one it was computed from.
+	 */
+	void applyTo(ObservableList<T> target) {
+		for (Op<T> op : ops) {
+			switch (op.kind) {
+			case REMOVE:
+				target.remove(op.index, op.index + op.count);
+				break;
+			case ADD:
+				target.addAll(op.index, op.elements);
+				break;
+			default:
+				target.set(op.index, op.elements.get(0));
+			}
+		}
+	}
+
+	private static final class Op<T> {
+
+		final int kind;
+		final int index;
+		final int count;
+		final List<T> elements;
+
+		Op(int kind, int index, int count, List<T> elements) {
+			this.kind = kind;
+			this.index = index;
+			this.count = count;
+			this.elements = elements;
+		}
+	}
+}
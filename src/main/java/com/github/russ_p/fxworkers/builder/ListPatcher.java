@@ -0,0 +1,96 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * Updates an {@link ObservableList} with the difference to a new result
+ * instead of replacing all elements. The patch is computed in the worker
+ * thread against a snapshot of the last contents set by the patcher; if the
+ * list was changed by someone else meanwhile, or the difference is too large,
+ * the new result is set with {@code setAll}.
+ */
+final class ListPatcher<T> {
+
+	/** larger differences cost about as much to apply as a full replace */
+	static final int MAX_EDITS = 1000;
+
+	private final ObservableList<T> target;
+	private final Function<? super T, ?> keyExtractor;
+
+	/** contents after the last update by the patcher */
+	private volatile List<T> snapshot = Collections.emptyList();
+
+	private final AtomicReference<Prepared<T>> prepared = new AtomicReference<>();
+
+	// accessed in FxApplicationThread
+	private boolean applying;
+	private boolean dirty = true;
+
+	ListPatcher(ObservableList<T> target, Function<? super T, ?> keyExtractor) {
+		this.target = target;
+		this.keyExtractor = keyExtractor;
+		target.addListener((ListChangeListener<T>) c -> {
+			if (!applying) {
+				dirty = true;
+			}
+		});
+	}
+
+	/**
+	 * Computes the patch for {@code result}, executes in the worker thread.
+	 * 
+	 * @return {@code result}
+	 */
+	List<T> prepare(List<T> result) {
+		List<T> base = snapshot;
+		List<T> copy = new ArrayList<>(result);
+		ListPatch<T> patch = ListPatch.diff(base, copy, keyExtractor, MAX_EDITS);
+		prepared.set(new Prepared<>(result, base, copy, patch));
+		return result;
+	}
+
+	/**
+	 * executes in FxApplicationThread
+	 */
+	void apply(List<T> result) {
+		Prepared<T> p = prepared.get();
+		List<T> copy;
+		applying = true;
+		try {
+			if (p != null && p.result == result && p.base == snapshot && !dirty && p.patch != null) {
+				p.patch.applyTo(target);
+				WorkersMetrics.INSTANCE.patchedUpdates.increment();
+				copy = p.copy;
+			} else {
+				target.setAll(result);
+				copy = p != null && p.result == result ? p.copy : new ArrayList<>(result);
+			}
+		} finally {
+			applying = false;
+		}
+		snapshot = copy;
+		dirty = false;
+	}
+
+	private static final class Prepared<T> {
+
+		final List<T> result;
+		final List<T> base;
+		final List<T> copy;
+		final ListPatch<T> patch;
+
+		Prepared(List<T> result, List<T> base, List<T> copy, ListPatch<T> patch) {
+			this.result = result;
+			this.base = base;
+			this.copy = copy;
+			this.patch = patch;
+		}
+	}
+}
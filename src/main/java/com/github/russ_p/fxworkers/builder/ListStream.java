@@ -0,0 +1,176 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.github.russ_p.fxworkers.CancellationToken;
+import com.github.russ_p.fxworkers.ListSink;
+
+import javafx.collections.ObservableList;
+
+/**
+ * Streams the elements pushed by a worker body into an
+ * {@link ObservableList}. Elements are buffered and appended in the FX
+ * Application thread, at most {@code chunkSize} at a time; the rest is left for
+ * a later pulse of the dispatcher, so the UI gets rendered between chunks.
+ * <p>
+ * At most {@code bufferSize} elements wait for the FX thread: a producer that is
+ * faster than the UI blocks in {@link ListSink#push(Object)} until a chunk is
+ * appended. The wait ends with a {@link CancellationException} when the sink
+ * is cancelled or the thread interrupted.
+ * <p>
+ * Each execution gets a sink tied to its run's {@link CancellationToken} and to
+ * a new generation: the sink is cancelled when the run is superseded, times
+ * out or is interrupted, or when a newer execution starts, and its buffered
+ * elements are dropped. The first
+ * chunk of a stream replaces the list contents, so old rows stay visible until
+ * new ones arrive. When the body returns, the rest is appended at once, before
+ * the run reports its outcome.
+ */
+final class ListStream<T> {
+
+	private static final long CANCEL_CHECK_MILLIS = 50;
+
+	private final ObservableList<T> target;
+	private final int chunkSize;
+	private final int bufferSize;
+	private final AtomicLong generation = new AtomicLong();
+
+	/** generation shown in the target list, accessed in FxApplicationThread */
+	private long shown;
+
+	ListStream(ObservableList<T> target, int chunkSize, int bufferSize) {
+		this.target = target;
+		this.chunkSize = chunkSize;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Runs {@code producer} in the calling thread, with a new sink tied to the
+	 * run executing in it.
+	 */
+	void produce(Consumer<ListSink<T>> producer) {
+		Sink sink = new Sink(generation.incrementAndGet(), CancellationSource.current());
+		try {
+			producer.accept(sink);
+		} finally {
+			sink.close();
+		}
+	}
+
+	private final class Sink implements ListSink<T> {
+
+		private final long gen;
+		private final CancellationToken token;
+		private final Queue<T> buffer = new ConcurrentLinkedQueue<>();
+		/** free places in the buffer */
+		private final Semaphore space = new Semaphore(bufferSize);
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		/** the last element was appended, accessed in FxApplicationThread */
+		private boolean finished;
+
+		Sink(long gen, CancellationToken token) {
+			this.gen = gen;
+			this.token = token;
+		}
+
+		@Override
+		public void push(T element) {
+			if (isCancelled() || Thread.currentThread().isInterrupted()) {
+				throw new CancellationException();
+			}
+			try {
+				// a newer execution cancels the sink without an interrupt
+				while (!space.tryAcquire(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (isCancelled()) {
+						throw new CancellationException();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException();
+			}
+			buffer.offer(element);
+			schedule();
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return token.isCancelled() || generation.get() != gen;
+		}
+
+		/**
+		 * Appends the rest in one go, before the run reports its outcome.
+		 */
+		void close() {
+			FxDispatcher.dispatch(() -> flush(Integer.MAX_VALUE, true));
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				FxDispatcher.dispatch(this::flush);
+			}
+		}
+
+		/**
+		 * executes in FxApplicationThread
+		 */
+		private void flush() {
+			flush(chunkSize, false);
+		}
+
+		/**
+		 * executes in FxApplicationThread
+		 */
+		private void flush(int max, boolean last) {
+			if (finished) {
+				return;
+			}
+			if (isCancelled()) {
+				buffer.clear();
+				finished = true;
+				return;
+			}
+			List<T> chunk = new ArrayList<>(Math.min(max, 256));
+			T element;
+			while (chunk.size() < max && (element = buffer.poll()) != null) {
+				chunk.add(element);
+			}
+			space.release(chunk.size());
+			if (shown != gen) {
+				if (chunk.isEmpty() && !last) {
+					release();
+					return;
+				}
+				shown = gen;
+				target.setAll(chunk);
+			} else if (!chunk.isEmpty()) {
+				target.addAll(chunk);
+			}
+			if (last) {
+				finished = true;
+			} else if (buffer.isEmpty()) {
+				release();
+			} else {
+				// the rest after a pulse, so the chunk gets rendered
+				FxDispatcher.dispatchAfterPulse(this::flush);
+			}
+		}
+
+		private void release() {
+			scheduled.set(false);
+			if (!buffer.isEmpty() && scheduled.compareAndSet(false, true)) {
+				FxDispatcher.dispatch(this::flush);
+			}
+		}
+	}
+}
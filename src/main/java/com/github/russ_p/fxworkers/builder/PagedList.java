@@ -0,0 +1,275 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.github.russ_p.fxworkers.PageSource;
+import com.github.russ_p.fxworkers.UniArgWorker;
+import com.github.russ_p.fxworkers.ZeroArgWorker;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * Read-only list of all rows of a {@link PageSource} that holds only some
+ * pages in memory. A row of a page that is not loaded reads as {@code null},
+ * and the page is loaded in the background together with its neighbours; when
+ * it arrives, its rows are reported as replaced, so a TableView or ListView
+ * shows them.
+ * <p>
+ * Pages are loaded by a batch worker, so the requests of one layout pass are
+ * merged into a few source calls. The least recently used pages are evicted
+ * once more than {@code maxPages} are held, and their rows are reported as
+ * replaced, so the control reads them again. Reads by change listeners don't
+ * load pages: a selection model reading the new rows must not start a cascade
+ * of loads and evictions.
+ * <p>
+ * Like any list shown by a control, it must be used in the FX Application
+ * thread.
+ *
+ * @see WorkersBuilder#pagedList(PageSource)
+ */
+public final class PagedList<T> extends ObservableListBase<T> {
+
+	private final PageSource<T> source;
+	private final int pageSize;
+	private final int prefetch;
+	private final Map<Integer, List<T>> pages;
+	private final Set<Integer> requested = new HashSet<>();
+	/** pages evicted by the last put */
+	private final Map<Integer, List<T>> evicted = new HashMap<>();
+	private final UniArgWorker<PageKey> loader;
+	private final ZeroArgWorker sizeLoader;
+
+	private int size;
+	private int generation;
+	private long hits;
+	private long misses;
+	/** change listeners are being notified */
+	private boolean notifying;
+
+	PagedList(PageSource<T> source, int pageSize, int maxPages, int prefetch, String lane,
+			Consumer<Throwable> onError) {
+		this.source = source;
+		this.pageSize = pageSize;
+		this.prefetch = prefetch;
+		this.pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+				if (size() <= maxPages) {
+					return false;
+				}
+				evicted.put(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+		this.loader = WorkersBuilder.<PageKey, List<T>> batchFunction(this::load)
+				.window(Duration.ofMillis(5))
+				.maxBatchSize(maxPages)
+				.lane(lane)
+				.onSuccess(this::pageLoaded)
+				.onError(e -> {
+					// let the next access retry
+					requested.clear();
+				})
+				.onError(onError)
+				.build();
+		this.sizeLoader = WorkersBuilder.supplier(source::size)
+				.lane(lane)
+				.onSuccess(this::resized)
+				.onError(onError)
+				.build();
+	}
+
+	/**
+	 * Reloads the size and drops all pages.
+	 */
+	public void refresh() {
+		sizeLoader.run();
+	}
+
+	/**
+	 * @return the row, or {@code null} while its page is loading or, if read by
+	 *         a change listener, not loaded
+	 */
+	@Override
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int page = index / pageSize;
+		List<T> rows = pages.get(page);
+		if (rows != null) {
+			hits++;
+			WorkersMetrics.INSTANCE.pageHits.increment();
+		} else {
+			misses++;
+			WorkersMetrics.INSTANCE.pageMisses.increment();
+		}
+		if (!notifying) {
+			request(page);
+			for (int i = 1; i <= prefetch; i++) {
+				request(page + i);
+				request(page - i);
+			}
+		}
+		int offset = index - page * pageSize;
+		return rows != null && offset < rows.size() ? rows.get(offset) : null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * @return number of pages held in memory
+	 */
+	public int getLoadedPages() {
+		return pages.size();
+	}
+
+	/**
+	 * @return share of {@link #get(int)} calls answered from a loaded page,
+	 *         {@code NaN} before the first one
+	 */
+	public double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? Double.NaN : (double) hits / total;
+	}
+
+	private void request(int page) {
+		if (page < 0 || page * (long) pageSize >= size || pages.containsKey(page) || !requested.add(page)) {
+			return;
+		}
+		loader.run(new PageKey(generation, page));
+	}
+
+	/**
+	 * Loads runs of consecutive pages with one source call each, executes in
+	 * the worker thread.
+	 */
+	private Map<PageKey, List<T>> load(List<PageKey> keys) {
+		List<PageKey> sorted = new ArrayList<>(keys);
+		sorted.sort((a, b) -> a.generation != b.generation ? Integer.compare(a.generation, b.generation)
+				: Integer.compare(a.page, b.page));
+		Map<PageKey, List<T>> result = new HashMap<>();
+		int i = 0;
+		while (i < sorted.size()) {
+			int j = i + 1;
+			while (j < sorted.size() && sorted.get(j).generation == sorted.get(i).generation
+					&& sorted.get(j).page == sorted.get(j - 1).page + 1) {
+				j++;
+			}
+			List<T> rows = source.load(sorted.get(i).page * pageSize, (j - i) * pageSize);
+			for (int k = i; k < j; k++) {
+				int from = Math.min((k - i) * pageSize, rows.size());
+				int to = Math.min(from + pageSize, rows.size());
+				result.put(sorted.get(k), new ArrayList<>(rows.subList(from, to)));
+			}
+			i = j;
+		}
+		return result;
+	}
+
+	/**
+	 * executes in FxApplicationThread
+	 */
+	private void pageLoaded(PageKey key, List<T> rows) {
+		if (key.generation != generation) {
+			return;
+		}
+		requested.remove(key.page);
+		pages.put(key.page, rows);
+		beginChange();
+		replaced(key.page, Collections.emptyList());
+		evicted.forEach(this::replaced);
+		evicted.clear();
+		notifying = true;
+		try {
+			endChange();
+		} finally {
+			notifying = false;
+		}
+	}
+
+	/**
+	 * Reports the rows of a page as replaced, {@code old} being its rows
+	 * before.
+	 */
+	private void replaced(int page, List<T> old) {
+		int from = page * pageSize;
+		int to = Math.min(from + pageSize, size);
+		if (from >= to) {
+			return;
+		}
+		List<T> removed = new ArrayList<>(to - from);
+		for (int i = 0; i < to - from; i++) {
+			removed.add(i < old.size() ? old.get(i) : null);
+		}
+		nextReplace(from, to, removed);
+	}
+
+	/**
+	 * executes in FxApplicationThread
+	 */
+	private void resized(int newSize) {
+		generation++;
+		pages.clear();
+		requested.clear();
+		int oldSize = size;
+		size = newSize;
+		beginChange();
+		if (oldSize > 0) {
+			nextRemove(0, Collections.nCopies(oldSize, null));
+		}
+		if (newSize > 0) {
+			nextAdd(0, newSize);
+		}
+		notifying = true;
+		try {
+			endChange();
+		} finally {
+			notifying = false;
+		}
+	}
+
+	private static final class PageKey {
+
+		final int generation;
+		final int page;
+
+		PageKey(int generation, int page) {
+			this.generation = generation;
+			this.page = page;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PageKey)) {
+				return false;
+			}
+			PageKey other = (PageKey) obj;
+			return generation == other.generation && page == other.page;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * generation + page;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+
+import com.github.russ_p.fxworkers.CancellationToken;
+
+/**
+ * Maps the elements of a collection in parallel on a {@link ForkJoinPool}.
+ * The input is split in halves down to chunks of about a few per pool thread,
+ * and results are written by index, so they come out in input order.
+ * <p>
+ * Each execution gets a new generation: subtasks of an older one stop at the
+ * next element once a newer execution starts, when the waiting worker thread
+ * is interrupted, when the run's {@link CancellationToken} is tripped, or when
+ * a sibling fails. Progress is reported in the FX Application thread,
+ * coalesced to at most one pending callback.
+ */
+final class ParallelMap<T, R> {
+
+	private final Function<? super T, ? extends R> mapper;
+	private final ForkJoinPool pool;
+	private final DoubleConsumer onProgress;
+	private final AtomicLong generation = new AtomicLong();
+
+	ParallelMap(Function<? super T, ? extends R> mapper, ForkJoinPool pool, DoubleConsumer onProgress) {
+		this.mapper = mapper;
+		this.pool = pool;
+		this.onProgress = onProgress;
+	}
+
+	/**
+	 * Executes in the worker thread, waiting for the subtasks.
+	 */
+	@SuppressWarnings("unchecked")
+	List<R> apply(Collection<T> input) {
+		Execution execution = new Execution(input.toArray());
+		ForkJoinTask<Void> root = pool.submit(execution.new Chunk(0, execution.elements.length));
+		try {
+			root.get();
+		} catch (InterruptedException e) {
+			execution.stopped.set(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+		if (execution.isAbandoned()) {
+			throw new CancellationException();
+		}
+		return new ArrayList<>((List<R>) Arrays.asList(execution.results));
+	}
+
+	private final class Execution {
+
+		final long gen = generation.incrementAndGet();
+		// taken in the worker thread: pool threads have no token bound
+		final CancellationToken token = CancellationSource.current();
+		final Object[] elements;
+		final Object[] results;
+		final int threshold;
+		final LongAdder done = new LongAdder();
+		final AtomicBoolean stopped = new AtomicBoolean();
+		final AtomicBoolean progressScheduled = new AtomicBoolean();
+
+		Execution(Object[] elements) {
+			this.elements = elements;
+			this.results = new Object[elements.length];
+			this.threshold = Math.max(1, elements.length / (pool.getParallelism() * 4));
+		}
+
+		// not isCancelled(): in Chunk that name resolves to ForkJoinTask's
+		boolean isAbandoned() {
+			return stopped.get() || token.isCancelled() || generation.get() != gen;
+		}
+
+		private void progress() {
+			if (onProgress != null && progressScheduled.compareAndSet(false, true)) {
+				FxDispatcher.dispatch(() -> {
+					progressScheduled.set(false);
+					if (generation.get() == gen) {
+						onProgress.accept(elements.length == 0 ? 1 : (double) done.sum() / elements.length);
+					}
+				});
+			}
+		}
+
+		private final class Chunk extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int from;
+			private final int to;
+
+			Chunk(int from, int to) {
+				this.from = from;
+				this.to = to;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			protected void compute() {
+				if (isAbandoned()) {
+					return;
+				}
+				if (to - from > threshold) {
+					int mid = (from + to) >>> 1;
+					invokeAll(new Chunk(from, mid), new Chunk(mid, to));
+					return;
+				}
+				try {
+					for (int i = from; i < to; i++) {
+						if (isAbandoned()) {
+							return;
+						}
+						results[i] = mapper.apply((T) elements[i]);
+					}
+				} catch (RuntimeException | Error e) {
+					stopped.set(true);
+					throw e;
+				}
+				done.add(to - from);
+				progress();
+			}
+		}
+	}
+}
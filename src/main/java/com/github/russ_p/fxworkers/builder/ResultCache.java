@@ -0,0 +1,93 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of run results with a time to live, keyed on the run
+ * arguments.
+ */
+final class ResultCache<K, V> {
+
+	private final long ttlNanos;
+	private final Map<K, Entry<V>> entries;
+
+	private volatile int maxEntries;
+
+	ResultCache(int maxEntries, Duration ttl) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries < 1");
+		}
+		this.ttlNanos = ttl.toNanos();
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<K, ResultCache.Entry<V>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, ResultCache.Entry<V>> eldest) {
+				return size() > ResultCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Shrinks or grows the cache; extra entries are evicted on the next put.
+	 */
+	void setMaxEntries(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries < 1");
+		}
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * @return the live entry, or {@code null} on a miss; counted in the cache
+	 *         metrics
+	 */
+	Entry<V> get(K key) {
+		Entry<V> entry = peek(key, ttlNanos);
+		if (entry == null) {
+			WorkersMetrics.INSTANCE.cacheMisses.increment();
+		} else {
+			WorkersMetrics.INSTANCE.cacheHits.increment();
+		}
+		return entry;
+	}
+
+	/**
+	 * Like {@link #get(Object)}, not counted in the cache metrics.
+	 * 
+	 * @param maxAgeNanos maximum age accepted by this caller, older entries are
+	 *                    dropped
+	 * @return the entry, or {@code null} on a miss
+	 */
+	Entry<V> peek(K key, long maxAgeNanos) {
+		synchronized (entries) {
+			Entry<V> entry = entries.get(key);
+			if (entry != null && System.nanoTime() - entry.created >= Math.min(ttlNanos, maxAgeNanos)) {
+				entries.remove(key);
+				entry = null;
+			}
+			return entry;
+		}
+	}
+
+	void put(K key, V value) {
+		Entry<V> entry = new Entry<>(value);
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	static final class Entry<V> {
+
+		final V value;
+		final long created = System.nanoTime();
+
+		Entry(V value) {
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Retry settings of a worker. Delays grow exponentially from the base backoff
+ * and are fully jittered, so workers that failed together don't retry
+ * together.
+ */
+final class Retry {
+
+	// 2^16 times the backoff at most
+	private static final int MAX_SHIFT = 16;
+
+	final int maxAttempts;
+	private final long backoffNanos;
+	private final Predicate<? super Throwable> retryOn;
+
+	Retry(int maxAttempts, Duration backoff, Predicate<? super Throwable> retryOn) {
+		this.maxAttempts = maxAttempts;
+		this.backoffNanos = backoff.toNanos();
+		this.retryOn = retryOn;
+	}
+
+	/**
+	 * @param attempts attempts made so far
+	 */
+	boolean shouldRetry(int attempts, Throwable failure) {
+		return attempts < maxAttempts && retryOn.test(failure);
+	}
+
+	/**
+	 * @param attempts attempts made so far, at least 1
+	 * @return random delay in {@code [0, backoff * 2^(attempts - 1)]}
+	 */
+	Duration delay(int attempts) {
+		int shift = Math.min(attempts - 1, MAX_SHIFT);
+		long ceiling = backoffNanos > Long.MAX_VALUE >> shift ? Long.MAX_VALUE - 1 : backoffNanos << shift;
+		return Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+	}
+}
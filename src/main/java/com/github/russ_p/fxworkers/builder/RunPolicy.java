@@ -0,0 +1,126 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Gate in front of a worker's run: decides when (and whether) a run request
+ * reaches the implementation. Holds per-worker state, so every worker gets its
+ * own instance.
+ */
+abstract class RunPolicy {
+
+	/**
+	 * @param arg    run arguments
+	 * @param target starts the run, may be called on the timer thread
+	 * @param drop   receives arguments replaced by later ones before they were
+	 *               started
+	 */
+	abstract <V> void submit(V arg, Consumer<? super V> target, Consumer<? super V> drop);
+
+	static RunPolicy debounce(Duration delay) {
+		return new Debounce(delay);
+	}
+
+	static RunPolicy throttle(Duration period) {
+		return new Throttle(period);
+	}
+
+	/**
+	 * Runs only after no new request came for {@code delay}, with the latest
+	 * arguments.
+	 */
+	private static final class Debounce extends RunPolicy {
+
+		private final Duration delay;
+		private final AtomicReference<Object> latest = new AtomicReference<>();
+		private final AtomicReference<ScheduledFuture<?>> timer = new AtomicReference<>();
+
+		Debounce(Duration delay) {
+			this.delay = delay;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		<V> void submit(V arg, Consumer<? super V> target, Consumer<? super V> drop) {
+			V replaced = (V) latest.getAndSet(arg);
+			if (replaced != null) {
+				drop.accept(replaced);
+			}
+			ScheduledFuture<?> prev = timer.getAndSet(WorkersScheduler.schedule(() -> fire(target), delay));
+			if (prev != null) {
+				prev.cancel(false);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private <V> void fire(Consumer<? super V> target) {
+			V arg = (V) latest.getAndSet(null);
+			if (arg != null) {
+				target.accept(arg);
+			}
+		}
+	}
+
+	/**
+	 * Runs the first request at once, then at most once per {@code period} with
+	 * the latest arguments received in between.
+	 */
+	private static final class Throttle extends RunPolicy {
+
+		private final Duration period;
+		private final AtomicReference<Object> pending = new AtomicReference<>();
+		private final AtomicBoolean window = new AtomicBoolean();
+
+		Throttle(Duration period) {
+			this.period = period;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		<V> void submit(V arg, Consumer<? super V> target, Consumer<? super V> drop) {
+			if (window.compareAndSet(false, true)) {
+				open(arg, target);
+			} else {
+				V replaced = (V) pending.getAndSet(arg);
+				if (replaced != null) {
+					drop.accept(replaced);
+				}
+				// the window may have closed before pending was set
+				if (window.compareAndSet(false, true) && !takePending(target)) {
+					release(target);
+				}
+			}
+		}
+
+		private <V> void open(V arg, Consumer<? super V> target) {
+			WorkersScheduler.schedule(() -> close(target), period);
+			target.accept(arg);
+		}
+
+		private <V> void close(Consumer<? super V> target) {
+			if (!takePending(target)) {
+				release(target);
+			}
+		}
+
+		private <V> void release(Consumer<? super V> target) {
+			do {
+				window.set(false);
+			} while (pending.get() != null && window.compareAndSet(false, true) && !takePending(target));
+		}
+
+		@SuppressWarnings("unchecked")
+		private <V> boolean takePending(Consumer<? super V> target) {
+			V arg = (V) pending.getAndSet(null);
+			if (arg == null) {
+				return false;
+			}
+			open(arg, target);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shared registry of executions in flight. Identical concurrent runs join one
+ * execution, and each gets its own future: cancelling it leaves the flight, and
+ * the execution is cancelled, and its token tripped, only when all subscribers
+ * have left.
+ * <p>
+ * A flight is removed once its execution finishes, so only concurrent runs are
+ * shared; results are not cached.
+ */
+final class SingleFlight {
+
+	private static final ConcurrentMap<Object, Flight<?>> FLIGHTS = new ConcurrentHashMap<>();
+
+	private SingleFlight() {
+	}
+
+	/**
+	 * Joins the execution in flight for {@code key}, or starts {@code body} on
+	 * an executor if there is none. {@code body} gets the token of the
+	 * execution.
+	 *
+	 * @param executor executor for the flight, given the handler of a later
+	 *                 rejection
+	 * @return future of this subscriber
+	 */
+	@SuppressWarnings("unchecked")
+	static <R> CompletableFuture<R> join(Object key, Function<Consumer<RuntimeException>, Executor> executor,
+			Function<CancellationSource, R> body) {
+		while (true) {
+			Flight<R> flight = (Flight<R>) FLIGHTS.get(key);
+			boolean created = false;
+			if (flight == null) {
+				Flight<R> f = new Flight<>(key, body);
+				flight = (Flight<R>) FLIGHTS.putIfAbsent(key, f);
+				if (flight == null) {
+					flight = f;
+					created = true;
+				}
+			}
+			CompletableFuture<R> subscriber = flight.subscribe();
+			if (subscriber == null) {
+				// finished or abandoned meanwhile
+				FLIGHTS.remove(key, flight);
+				continue;
+			}
+			if (created) {
+				flight.start(executor);
+			} else {
+				WorkersMetrics.INSTANCE.sharedRuns.increment();
+			}
+			return subscriber;
+		}
+	}
+
+	/**
+	 * Completes the subscribers of an abandoned flight that are still waiting
+	 * for it, so that they join another one.
+	 */
+	static final class AbandonedException extends CancellationException {
+
+		private static final long serialVersionUID = 1L;
+
+		AbandonedException() {
+			super("flight abandoned");
+		}
+	}
+
+	private static final class Flight<R> {
+
+		private final Object key;
+		private final FutureTask<R> task;
+		private final CompletableFuture<R> result = new CompletableFuture<>();
+		private final CancellationSource token = new CancellationSource();
+
+		// guarded by this
+		private int subscribers;
+		private boolean closed;
+
+		Flight(Object key, Function<CancellationSource, R> body) {
+			this.key = key;
+			this.task = new FutureTask<R>(() -> body.apply(token)) {
+
+				@Override
+				protected void done() {
+					close();
+					if (isCancelled()) {
+						result.completeExceptionally(new AbandonedException());
+						return;
+					}
+					try {
+						result.complete(get());
+					} catch (ExecutionException e) {
+						result.completeExceptionally(e.getCause());
+					} catch (InterruptedException | CancellationException e) {
+						result.cancel(false);
+					}
+				}
+			};
+		}
+
+		void start(Function<Consumer<RuntimeException>, Executor> executor) {
+			try {
+				executor.apply(this::fail).execute(task);
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * Fails all subscribers of a flight whose task was rejected.
+		 */
+		private void fail(RuntimeException e) {
+			close();
+			result.completeExceptionally(e);
+		}
+
+		synchronized CompletableFuture<R> subscribe() {
+			if (closed) {
+				return null;
+			}
+			subscribers++;
+			CompletableFuture<R> subscriber = new CompletableFuture<R>() {
+
+				@Override
+				public boolean cancel(boolean mayInterruptIfRunning) {
+					boolean cancelled = super.cancel(mayInterruptIfRunning);
+					if (cancelled) {
+						leave();
+					}
+					return cancelled;
+				}
+			};
+			result.whenComplete((r, t) -> {
+				if (t == null) {
+					subscriber.complete(r);
+				} else {
+					subscriber.completeExceptionally(t);
+				}
+			});
+			return subscriber;
+		}
+
+		/**
+		 * Drops a subscriber, and abandons the flight with the last one. The
+		 * count and the close are one step, so no run can join a flight that is
+		 * about to be cancelled.
+		 */
+		private void leave() {
+			synchronized (this) {
+				if (--subscribers > 0 || closed) {
+					return;
+				}
+				closed = true;
+			}
+			FLIGHTS.remove(key, this);
+			token.cancel();
+			task.cancel(true);
+		}
+
+		private void close() {
+			synchronized (this) {
+				closed = true;
+			}
+			FLIGHTS.remove(key, this);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * Step of a worker pipeline, applied to the result of the previous one: in
+ * the same thread, or handed over to another executor.
+ */
+final class Stage {
+
+	private final Function<Object, Object> fn;
+	private final boolean async;
+	private final String lane;
+
+	@SuppressWarnings("unchecked")
+	Stage(Function<?, ?> fn, boolean async, String lane) {
+		this.fn = (Function<Object, Object>) fn;
+		this.async = async;
+		this.lane = lane;
+	}
+
+	/**
+	 * Stages are equal if they apply the same function the same way, so that
+	 * pipelines built separately over the same functions share single-flight
+	 * executions.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Stage)) {
+			return false;
+		}
+		Stage other = (Stage) obj;
+		return fn.equals(other.fn) && async == other.async && Objects.equals(lane, other.lane);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(fn, async, lane);
+	}
+
+	Object apply(Object value) {
+		return fn.apply(value);
+	}
+
+	/**
+	 * @return executor to hand the stage over to, {@code null} to apply it in
+	 *         the current thread
+	 */
+	Executor executor() {
+		if (!async) {
+			return null;
+		}
+		return lane == null ? WorkersBuilder.defaultExecutor() : WorkerLane.get(lane).getExecutor();
+	}
+
+	/**
+	 * Waits for the result of an async body in the current thread. An
+	 * interrupt cancels it.
+	 */
+	static Object await(CompletionStage<?> stage) {
+		CompletableFuture<?> future = stage.toCompletableFuture();
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			throw rethrow(e.getCause());
+		}
+	}
+
+	/**
+	 * Applies all stages, waiting in the current thread for those on other
+	 * executors. An interrupt cancels the active one.
+	 */
+	static Object applyAll(List<Stage> stages, Object value) {
+		for (Stage stage : stages) {
+			Executor executor = stage.executor();
+			if (executor == null) {
+				value = stage.apply(value);
+				continue;
+			}
+			Object v = value;
+			FutureTask<Object> task = new FutureTask<>(() -> stage.apply(v));
+			executor.execute(task);
+			try {
+				value = task.get();
+			} catch (InterruptedException e) {
+				task.cancel(true);
+				Thread.currentThread().interrupt();
+				throw new CancellationException();
+			} catch (ExecutionException e) {
+				throw rethrow(e.getCause());
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @return the unchecked {@code cause} of a failed future, or the cause's
+	 *         cause if it is a {@link CompletionException}, for {@code throw}
+	 */
+	static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		return new CompletionException(cause);
+	}
+}
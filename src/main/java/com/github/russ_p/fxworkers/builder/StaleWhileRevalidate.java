@@ -0,0 +1,71 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Stale-while-revalidate delivery for supplier workers: the last successful
+ * result stored under the same key is delivered to onSuccess as soon as a run
+ * starts, and the fresh result replaces it only if it differs.
+ * <p>
+ * Results are shared by all workers using the same key, in one bounded LRU
+ * store that is not counted in the result cache metrics. Each worker has an
+ * instance of its own; callbacks run in the FX Application thread, so it
+ * needs no synchronization.
+ */
+final class StaleWhileRevalidate<T> {
+
+	static final int DEFAULT_RETENTION = 256;
+
+	private static final ResultCache<Object, Object> STORE = new ResultCache<>(DEFAULT_RETENTION,
+			Duration.ofNanos(Long.MAX_VALUE));
+
+	private static final Object NOTHING = new Object();
+
+	private final Object key;
+	private final long maxAgeNanos;
+
+	/** stale value delivered by the current run */
+	private Object shown = NOTHING;
+
+	StaleWhileRevalidate(Object key, Duration maxAge) {
+		this.key = Objects.requireNonNull(key, "key");
+		this.maxAgeNanos = maxAge.toNanos();
+	}
+
+	static void setRetention(int maxEntries) {
+		STORE.setMaxEntries(maxEntries);
+	}
+
+	/**
+	 * @return onRun that also delivers the stored result to
+	 *         {@code onSuccess}
+	 */
+	@SuppressWarnings("unchecked")
+	Runnable wrapRun(Runnable onRun, Consumer<T> onSuccess) {
+		return () -> {
+			onRun.run();
+			ResultCache.Entry<Object> entry = STORE.peek(key, maxAgeNanos);
+			shown = entry == null ? NOTHING : entry.value;
+			if (entry != null) {
+				onSuccess.accept((T) entry.value);
+			}
+		};
+	}
+
+	/**
+	 * @return onSuccess that stores the fresh result and skips it when equal to
+	 *         the stale one shown
+	 */
+	Consumer<T> wrapSuccess(Consumer<T> onSuccess) {
+		return result -> {
+			STORE.put(key, result);
+			Object stale = shown;
+			shown = NOTHING;
+			if (stale == NOTHING || !Objects.equals(stale, result)) {
+				onSuccess.accept(result);
+			}
+		};
+	}
+}
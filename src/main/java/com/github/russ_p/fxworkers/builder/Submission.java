@@ -0,0 +1,24 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Run arguments on their way through run policies and conflation, with the
+ * future returned by {@code submit}.
+ */
+final class Submission<V, R> {
+
+	final V arg;
+	final CompletableFuture<R> result = new CompletableFuture<>();
+
+	Submission(V arg) {
+		this.arg = arg;
+	}
+
+	/**
+	 * Completes the future of a run that will not report a result.
+	 */
+	void drop() {
+		result.cancel(false);
+	}
+}
@@ -1,5 +1,7 @@
 package com.github.russ_p.fxworkers.builder;
 
+import java.util.Objects;
+
 class VarArg<A, B, C, D> {
 	private final A a;
 	private final B b;
@@ -29,4 +31,22 @@ class VarArg<A, B, C, D> {
 		return d;
 	}
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(a, b, c, d);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof VarArg)) {
+			return false;
+		}
+		VarArg<?, ?, ?, ?> other = (VarArg<?, ?, ?, ?>) obj;
+		return Objects.equals(a, other.a) && Objects.equals(b, other.b) && Objects.equals(c, other.c)
+				&& Objects.equals(d, other.d);
+	}
+
 }
\ No newline at end of file
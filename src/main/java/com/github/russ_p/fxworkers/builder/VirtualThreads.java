@@ -0,0 +1,25 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Virtual thread support. This is the Java 8 variant, which reports no
+ * support: the Java 21 variant is packaged in
+ * {@code META-INF/versions/21} of the multi-release jar.
+ */
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	static boolean isSupported() {
+		return false;
+	}
+
+	/**
+	 * @return executor starting a virtual thread per task
+	 */
+	static ExecutorService newExecutor() {
+		throw new UnsupportedOperationException("Virtual threads require Java 21");
+	}
+}
@@ -0,0 +1,141 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Named group of workers with a concurrency limit (a bulkhead), so that the
+ * workers of one screen can't take all threads of a shared pool. Tasks over
+ * the limit wait in the group's own queue; {@link FairScheduler} hands them
+ * to the pool.
+ * <p>
+ * Prioritized workers without a group of their own are members of
+ * {@link #DEFAULT}, which has no limit. Tasks of workers without either go
+ * to their pool directly, unless scheduled tasks hold all of its threads:
+ * then they go to {@link #DEFAULT} too, as {@link WorkerPriority#NORMAL},
+ * since in the pool's FIFO queue they would wait ahead of prioritized tasks.
+ * Priority orders tasks only within a group; between groups, the weights
+ * decide.
+ */
+final class WorkerGroup {
+
+	private static final Map<String, WorkerGroup> GROUPS = new ConcurrentHashMap<>();
+
+	static final String DEFAULT_NAME = "default";
+
+	static final WorkerGroup DEFAULT = new WorkerGroup(DEFAULT_NAME);
+
+	static {
+		DEFAULT.maxConcurrency = Integer.MAX_VALUE;
+		DEFAULT.weight = 1;
+		GROUPS.put(DEFAULT_NAME, DEFAULT);
+	}
+
+	final String name;
+
+	// guarded by FairScheduler.LOCK
+	int maxConcurrency;
+	int weight;
+	final PriorityQueue<FairScheduler.Task> queue = new PriorityQueue<>();
+	int active;
+	/** virtual start time of the queue head */
+	double start;
+	/** virtual finish time of the last dispatched task */
+	double finish;
+	long submitted;
+	long dispatched;
+	long waitNanos;
+	long maxWaitNanos;
+
+	private WorkerGroup(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Defines a group or changes its limit and weight; queued tasks are kept.
+	 */
+	static void define(String name, int maxConcurrency, int weight) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency < 1");
+		}
+		if (weight < 1) {
+			throw new IllegalArgumentException("weight < 1");
+		}
+		if (DEFAULT_NAME.equals(name)) {
+			throw new IllegalArgumentException("Reserved group: " + name);
+		}
+		WorkerGroup group = GROUPS.computeIfAbsent(name, WorkerGroup::new);
+		FairScheduler.update(() -> {
+			group.maxConcurrency = maxConcurrency;
+			group.weight = weight;
+		});
+	}
+
+	static WorkerGroup get(String name) {
+		WorkerGroup group = GROUPS.get(name);
+		if (group == null) {
+			throw new IllegalArgumentException("Unknown group: " + name);
+		}
+		return group;
+	}
+
+	static List<WorkerGroup> all() {
+		return new ArrayList<>(GROUPS.values());
+	}
+
+	/**
+	 * @param group    the worker's group, {@code null} for none
+	 * @param priority the worker's priority, {@code null} for none
+	 * @param rejected gets the exception if {@code target} rejects a task
+	 *                 that waited in the group queue
+	 * @return for a worker without group and priority, an executor that goes
+	 *         to {@code target} directly while scheduled tasks leave it a free
+	 *         thread; otherwise an executor through the scheduler, which never
+	 *         throws
+	 */
+	static Executor scheduled(Executor target, WorkerGroup group, Supplier<WorkerPriority> priority,
+			Consumer<RuntimeException> rejected) {
+		if (group == null && priority == null) {
+			return command -> {
+				if (FairScheduler.isSaturated(target)) {
+					FairScheduler.submit(DEFAULT, target, WorkerPriority.NORMAL, command, rejected);
+				} else {
+					target.execute(command);
+				}
+			};
+		}
+		WorkerPriority p = priority == null ? null : priority.get();
+		return (group == null ? DEFAULT : group).executor(target, p == null ? WorkerPriority.NORMAL : p, rejected);
+	}
+
+	/**
+	 * @return executor that runs tasks of this group on {@code target}
+	 */
+	Executor executor(Executor target, WorkerPriority priority, Consumer<RuntimeException> rejected) {
+		return command -> FairScheduler.submit(this, target, priority, command, rejected);
+	}
+
+	GroupStats stats() {
+		synchronized (FairScheduler.LOCK) {
+			Duration averageWait = Duration.ofNanos(dispatched == 0 ? 0 : waitNanos / dispatched);
+			return new GroupStats(name, maxConcurrency, weight, active, queue.size(), submitted, averageWait,
+					Duration.ofNanos(maxWaitNanos));
+		}
+	}
+
+	void resetStats() {
+		synchronized (FairScheduler.LOCK) {
+			submitted = 0;
+			dispatched = 0;
+			waitNanos = 0;
+			maxWaitNanos = 0;
+		}
+	}
+}
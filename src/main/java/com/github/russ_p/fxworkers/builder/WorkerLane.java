@@ -0,0 +1,196 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named execution lane: a dedicated pool sized for one kind of workload, so
+ * that blocking I/O doesn't starve CPU-bound work. Pools are created on first
+ * use.
+ */
+final class WorkerLane {
+
+	static final String CPU = "cpu";
+	static final String IO = "io";
+	static final String VIRTUAL = "virtual";
+
+	private static final Map<String, WorkerLane> LANES = new ConcurrentHashMap<>();
+
+	static {
+		define(CPU, ExecutorProviders.threadsFor(1));
+		define(IO, Math.max(16, ExecutorProviders.threadsFor(4)));
+		if (VirtualThreads.isSupported()) {
+			LANES.put(VIRTUAL, new WorkerLane(VIRTUAL, 0, VirtualThreads::newExecutor));
+		}
+	}
+
+	private final String name;
+	/** 0 for lanes without a thread limit */
+	private final int threads;
+	private final Supplier<ExecutorService> factory;
+
+	private volatile ExecutorService executor;
+
+	// guarded by this
+	private boolean retired;
+
+	private final LongAdder submitted = new LongAdder();
+	private final AtomicInteger active = new AtomicInteger();
+	private final LongAdder busyNanos = new LongAdder();
+	private volatile long since = System.nanoTime();
+
+	private final Executor laneExecutor = this::execute;
+
+	private WorkerLane(String name, int threads, Supplier<ExecutorService> factory) {
+		this.name = name;
+		this.threads = threads;
+		this.factory = factory;
+	}
+
+	/**
+	 * Defines or redefines a lane. A redefined lane's pool finishes its queued
+	 * tasks and stops for good; tasks still handed to it go to the new lane.
+	 */
+	static void define(String name, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads < 1");
+		}
+		if (VIRTUAL.equals(name)) {
+			throw new IllegalArgumentException("Reserved lane: " + name);
+		}
+		WorkerLane prev = LANES.put(name, new WorkerLane(name, threads,
+				() -> new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+						new LinkedBlockingQueue<>(), new WorkerThreadFactory("fx-workers-" + name))));
+		if (prev != null) {
+			prev.retire();
+		}
+	}
+
+	static WorkerLane get(String name) {
+		WorkerLane lane = LANES.get(name);
+		if (lane == null) {
+			throw new IllegalArgumentException("Unknown lane: " + name);
+		}
+		return lane;
+	}
+
+	static List<WorkerLane> all() {
+		return new ArrayList<>(LANES.values());
+	}
+
+	/**
+	 * @return thread limit of the lane whose executor is {@code executor}, 0
+	 *         for a lane without one, -1 if it is not a lane's
+	 */
+	static int threadsOf(Executor executor) {
+		for (WorkerLane lane : LANES.values()) {
+			if (lane.laneExecutor == executor) {
+				return lane.threads;
+			}
+		}
+		return -1;
+	}
+
+	Executor getExecutor() {
+		return laneExecutor;
+	}
+
+	private void execute(Runnable command) {
+		ExecutorService pool = pool();
+		if (pool == null) {
+			// redefined meanwhile
+			get(name).execute(command);
+			return;
+		}
+		submitted.increment();
+		pool.execute(() -> {
+			active.incrementAndGet();
+			long start = System.nanoTime();
+			try {
+				command.run();
+			} finally {
+				busyNanos.add(System.nanoTime() - start);
+				active.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * @return the pool, {@code null} once the lane was redefined
+	 */
+	private ExecutorService pool() {
+		ExecutorService e = executor;
+		if (e == null) {
+			synchronized (this) {
+				e = executor;
+				if (e == null && !retired) {
+					e = factory.get();
+					executor = e;
+				}
+			}
+		}
+		return e;
+	}
+
+	private void retire() {
+		synchronized (this) {
+			retired = true;
+		}
+		shutdown(Duration.ZERO);
+	}
+
+	/**
+	 * Stops the pool, waiting up to {@code timeout} for queued tasks. The pool is
+	 * created again on next use.
+	 */
+	void shutdown(Duration timeout) {
+		ExecutorService e;
+		synchronized (this) {
+			e = executor;
+			executor = null;
+		}
+		if (e == null) {
+			return;
+		}
+		e.shutdown();
+		if (timeout.isZero()) {
+			return;
+		}
+		try {
+			if (!e.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+				e.shutdownNow();
+			}
+		} catch (InterruptedException ex) {
+			e.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	LaneStats stats() {
+		ExecutorService e = executor;
+		int queueDepth = e instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) e).getQueue().size() : 0;
+		double utilization = Double.NaN;
+		if (threads > 0) {
+			long elapsed = System.nanoTime() - since;
+			utilization = elapsed <= 0 ? 0 : Math.min(1.0, (double) busyNanos.sum() / ((double) elapsed * threads));
+		}
+		return new LaneStats(name, threads, active.get(), queueDepth, submitted.sum(), utilization);
+	}
+
+	void resetStats() {
+		submitted.reset();
+		busyNanos.reset();
+		since = System.nanoTime();
+	}
+}
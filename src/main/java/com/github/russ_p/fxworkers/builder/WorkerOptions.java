@@ -0,0 +1,47 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-worker settings collected by a builder and applied to the built worker.
+ */
+final class WorkerOptions {
+
+	/** creates the run gate of each built worker, {@code null} for none */
+	Supplier<RunPolicy> runPolicy;
+
+	/** let the running task finish and run only the latest pending arguments next */
+	boolean conflate;
+
+	/** execution lane, {@code null} for the executor provider */
+	String lane;
+
+	/** worker group, {@code null} for none */
+	String group;
+
+	/** queueing priority, asked for each task; {@code null} for none */
+	Supplier<WorkerPriority> priority;
+
+	/** result cache size, 0 for no cache */
+	int cacheSize;
+
+	Duration cacheTtl;
+
+	/** single-flight registry key of the worker's function, {@code null} for none */
+	Object flightKey;
+
+	/** the body returns a CompletionStage of the result, awaited without a thread */
+	boolean asyncBody;
+
+	/** deadline of each run from its start, {@code null} for none */
+	Duration timeout;
+
+	/** retry of failed attempts, {@code null} for none */
+	Retry retry;
+
+	/** pipeline stages applied to the body's result, in order */
+	final List<Stage> stages = new ArrayList<>();
+}
@@ -0,0 +1,41 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+
+/**
+ * Queueing priority of a worker's tasks, see
+ * {@code priority(WorkerPriority)} on the builders.
+ * <p>
+ * A queued task is ordered by its virtual deadline: the time it was queued
+ * plus the aging delay of its priority. A newer task of a higher priority
+ * goes first, unless the older task has waited longer than the difference of
+ * their delays, so lower priorities are delayed but never starved.
+ */
+public enum WorkerPriority {
+
+	/** work the user is waiting for, like the focused window's */
+	HIGH(Duration.ZERO),
+
+	NORMAL(Duration.ofMillis(200)),
+
+	/** prefetch, export and other background work */
+	LOW(Duration.ofSeconds(1));
+
+	private final long agingNanos;
+
+	WorkerPriority(Duration aging) {
+		this.agingNanos = aging.toNanos();
+	}
+
+	/**
+	 * @return how long a task of this priority may be overtaken by newer HIGH
+	 *         ones
+	 */
+	public Duration getAging() {
+		return Duration.ofNanos(agingNanos);
+	}
+
+	long deadline(long queuedNanos) {
+		return queuedNanos + agingNanos;
+	}
+}
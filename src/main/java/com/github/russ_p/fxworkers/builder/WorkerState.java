@@ -0,0 +1,17 @@
+package com.github.russ_p.fxworkers.builder;
+
+/**
+ * Lifecycle of a worker run.
+ */
+enum WorkerState {
+	/** accepted by run(), onRun not dispatched yet */
+	NEW,
+	/** onRun dispatched, submitted to the executor */
+	SCHEDULED,
+	/** body is executing */
+	RUNNING,
+	/** superseded by a newer run, cancellation in progress */
+	CANCELLING,
+	/** finished or cancelled, or no run at all */
+	IDLE;
+}
@@ -1,24 +1,46 @@
 package com.github.russ_p.fxworkers.builder;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import com.github.russ_p.fxworkers.BiArgWorker;
+import com.github.russ_p.fxworkers.BiFunctionWorker;
+import com.github.russ_p.fxworkers.CancellableBiConsumer;
+import com.github.russ_p.fxworkers.CancellableBiFunction;
+import com.github.russ_p.fxworkers.CancellationToken;
 import com.github.russ_p.fxworkers.ZeroArgWorker;
+import com.github.russ_p.fxworkers.FunctionWorker;
 import com.github.russ_p.fxworkers.FxWorker;
+import com.github.russ_p.fxworkers.ListSink;
+import com.github.russ_p.fxworkers.PageSource;
+import com.github.russ_p.fxworkers.SupplierWorker;
 import com.github.russ_p.fxworkers.UniArgWorker;
 
 import javafx.collections.ObservableList;
 
 public class WorkersBuilder {
 
-	private static Executor executor;
+	/** lane for CPU-bound work, one thread per core */
+	public static final String CPU_LANE = WorkerLane.CPU;
+
+	/** lane for blocking I/O, four threads per core but at least 16 */
+	public static final String IO_LANE = WorkerLane.IO;
+
+	private static volatile ExecutorProvider executorProvider = ExecutorProviders.defaultProvider();
 
 	private static final Runnable NOOP = () -> {
 	};
@@ -49,6 +71,11 @@ public class WorkersBuilder {
 
 		protected Impl impl = Impl.FUTURE;
 
+		protected WorkerOptions options = new WorkerOptions();
+
+		/** user function wrapped by {@link #function()}, if any */
+		protected Object origin;
+
 		public U onSuccess(Consumer<T> c) {
 			if (onSuccess == null) {
 				onSuccess = c;
@@ -105,7 +132,19 @@ public class WorkersBuilder {
 			return (U) this;
 		}
 
+		/**
+		 * Runs on a {@link javafx.concurrent.Service}, see
+		 * {@link FxWorker#asService()}. Can't be combined with {@code cache()}
+		 * and {@code singleFlight()}.
+		 */
 		public U service() {
+			checkSupported("service()");
+			if (options.cacheSize > 0) {
+				throw new IllegalStateException("cache() is not supported by service()");
+			}
+			if (options.flightKey != null) {
+				throw new IllegalStateException("singleFlight() is not supported by service()");
+			}
 			this.impl = Impl.SERVICE;
 			return (U) this;
 		}
@@ -115,6 +154,242 @@ public class WorkersBuilder {
 			return (U) this;
 		}
 
+		/**
+		 * Delays each run until no new run was requested for {@code delay}, then
+		 * runs with the latest arguments. Replaces {@link #throttle(Duration)}.
+		 */
+		public U debounce(Duration delay) {
+			checkSupported("debounce()");
+			options.runPolicy = () -> RunPolicy.debounce(delay);
+			return (U) this;
+		}
+
+		/**
+		 * Runs at most once per {@code period}: the first run starts at once,
+		 * later ones are dropped except the latest, which runs when the period
+		 * ends. Replaces {@link #debounce(Duration)}.
+		 */
+		public U throttle(Duration period) {
+			checkSupported("throttle()");
+			options.runPolicy = () -> RunPolicy.throttle(period);
+			return (U) this;
+		}
+
+		/**
+		 * Runs on the {@link WorkersBuilder#CPU_LANE} pool.
+		 */
+		public U cpu() {
+			return lane(CPU_LANE);
+		}
+
+		/**
+		 * Runs on the {@link WorkersBuilder#IO_LANE} pool.
+		 */
+		public U io() {
+			return lane(IO_LANE);
+		}
+
+		/**
+		 * Runs each execution on its own virtual thread, for blocking I/O at high
+		 * concurrency. Needs Java 21; on older runtimes runs on the
+		 * {@link WorkersBuilder#IO_LANE} pool instead.
+		 */
+		public U virtualThreads() {
+			return lane(VirtualThreads.isSupported() ? WorkerLane.VIRTUAL : IO_LANE);
+		}
+
+		/**
+		 * Runs on the pool of a lane defined by
+		 * {@link WorkersBuilder#defineLane(String, int)}.
+		 */
+		public U lane(String name) {
+			WorkerLane.get(name);
+			options.lane = name;
+			return (U) this;
+		}
+
+		/**
+		 * Runs as a member of a group defined by
+		 * {@link WorkersBuilder#defineGroup(String, int, int)}: the group's
+		 * executions are limited, queued and scheduled fairly with other groups,
+		 * on the pool the worker would use anyway.
+		 */
+		public U group(String name) {
+			WorkerGroup.get(name);
+			options.group = name;
+			return (U) this;
+		}
+
+		/**
+		 * Queues the worker's tasks by {@code priority} when they wait for a
+		 * thread, so foreground work overtakes queued background work of the
+		 * same group. Running tasks are not preempted, and waiting ones age: see
+		 * {@link WorkerPriority}.
+		 * <p>
+		 * Workers without a priority count as {@link WorkerPriority#NORMAL}.
+		 * Priority doesn't reach across groups, whose shares of a pool are set
+		 * by their weights, nor tasks submitted to the pool other than by
+		 * workers, like pipeline stages on another lane.
+		 */
+		public U priority(WorkerPriority priority) {
+			Objects.requireNonNull(priority, "priority");
+			options.priority = () -> priority;
+			return (U) this;
+		}
+
+		/**
+		 * Like {@link #priority(WorkerPriority)}, asking {@code priority} each
+		 * time a task is queued, like whether the worker's window is focused. It
+		 * is called on the thread that queues the task, not always the FX
+		 * Application thread.
+		 */
+		public U priority(Supplier<WorkerPriority> priority) {
+			options.priority = Objects.requireNonNull(priority, "priority");
+			return (U) this;
+		}
+
+		/**
+		 * A new run doesn't cancel the one in flight: it waits for it to finish.
+		 * Runs requested meanwhile are dropped, except the latest.
+		 */
+		public U conflate() {
+			checkSupported("conflate()");
+			options.conflate = true;
+			return (U) this;
+		}
+
+		/**
+		 * Concurrent runs with equal arguments, of this worker or of other
+		 * single-flight workers over the same function object and the same
+		 * pipeline stage functions, share one execution. Each worker gets the
+		 * result on its own callbacks, and a superseded run leaves the execution
+		 * to the others. Not supported by {@code service()}.
+		 */
+		public U singleFlight() {
+			checkSingleFlight();
+			options.flightKey = origin != null ? origin : function();
+			return (U) this;
+		}
+
+		/**
+		 * Like {@link #singleFlight()}, for workers built over different function
+		 * objects, like two lambdas calling the same method: runs share an
+		 * execution if their {@code key} and arguments are equal.
+		 */
+		public U singleFlight(Object key) {
+			checkSingleFlight();
+			options.flightKey = Objects.requireNonNull(key, "key");
+			return (U) this;
+		}
+
+		/**
+		 * Cancels a run that has not finished within {@code timeout} from the
+		 * moment it is scheduled, after a debounce or throttle delay, including
+		 * the wait in a group queue and pipeline stages, and delivers a
+		 * {@link java.util.concurrent.TimeoutException} to onError. The body is
+		 * interrupted and its {@link CancellationToken} tripped; its late result
+		 * is dropped.
+		 */
+		public U timeout(Duration timeout) {
+			checkSupported("timeout()");
+			if (timeout.isNegative() || timeout.isZero()) {
+				throw new IllegalArgumentException("timeout <= 0");
+			}
+			options.timeout = timeout;
+			return (U) this;
+		}
+
+		/**
+		 * Executes a failed run again, up to {@code maxAttempts} attempts in
+		 * total, while {@code retryOn} accepts the failure. The delay before
+		 * attempt {@code n + 1} is random in {@code [0, backoff * 2^(n - 1)]}.
+		 * Attempts are scheduled in the background: onRun and onComplete fire
+		 * once per run, and onError only with the last failure. A timeout covers
+		 * all attempts.
+		 */
+		public U retry(int maxAttempts, Duration backoff, Predicate<? super Throwable> retryOn) {
+			checkSupported("retry()");
+			if (maxAttempts < 1) {
+				throw new IllegalArgumentException("maxAttempts < 1");
+			}
+			if (backoff.isNegative()) {
+				throw new IllegalArgumentException("backoff < 0");
+			}
+			options.retry = new Retry(maxAttempts, backoff, Objects.requireNonNull(retryOn, "retryOn"));
+			return (U) this;
+		}
+
+		/**
+		 * Retries failures with an {@link Exception}, not with an {@link Error}.
+		 * 
+		 * @see #retry(int, Duration, Predicate)
+		 */
+		public U retry(int maxAttempts, Duration backoff) {
+			return retry(maxAttempts, backoff, e -> e instanceof Exception);
+		}
+
+		/**
+		 * Hands the settings over to the builder of the next pipeline stage.
+		 * Result callbacks and other settings of the result are typed by the
+		 * stage, so they must come after the last one.
+		 */
+		protected <B extends Builder<?, ?, ?>> B next(B next, Stage stage) {
+			checkStage();
+			next.onError = onError;
+			next.onRun = onRun;
+			next.onComplete = onComplete;
+			next.impl = impl;
+			next.options = options;
+			next.origin = origin;
+			options.stages.add(stage);
+			return next;
+		}
+
+		/**
+		 * @throws IllegalStateException if a setting that applies to the result
+		 *                               was made before a pipeline stage
+		 */
+		protected void checkStage() {
+			if (onSuccess != null || onSuccessRun != null) {
+				throw new IllegalStateException("onSuccess() must follow the last pipeline stage");
+			}
+		}
+
+		/**
+		 * Called first by each setting that not every worker supports.
+		 * 
+		 * @throws IllegalStateException if this builder's workers don't support
+		 *                               {@code option}
+		 */
+		protected void checkSupported(String option) {
+		}
+
+		private void checkSingleFlight() {
+			checkSupported("singleFlight()");
+			if (impl == Impl.SERVICE) {
+				throw new IllegalStateException("singleFlight() is not supported by service()");
+			}
+		}
+
+		/**
+		 * @return onSuccess followed by the {@link Runnable} one, if set
+		 */
+		protected Consumer<T> successHandler() {
+			if (onSuccessRun == null) {
+				return onSuccess;
+			}
+			Consumer<T> c = onSuccess;
+			return r -> {
+				c.accept(r);
+				onSuccessRun.run();
+			};
+		}
+
+		/**
+		 * @return the function executed by the worker
+		 */
+		protected abstract Object function();
+
 		protected void validate() {
 			if (onRun == null) {
 				onRun = NOOP;
@@ -135,19 +410,136 @@ public class WorkersBuilder {
 		public V build() {
 			validate();
 			V s = doBuild();
-			if (executor != null) {
-				s.setExecutor(executor);
-			}
+			((ConfigurableWorker) s).configure(options);
 			return s;
 		};
 
 	}
 
+	/**
+	 * Builder of workers over a function of their arguments, whose results can
+	 * be cached.
+	 */
+	@SuppressWarnings("unchecked")
+	private static abstract class CachingBuilder<T, U extends CachingBuilder<T, ?, ?>, V extends FxWorker>
+			extends Builder<T, U, V> {
+
+		/**
+		 * Caches results by arguments: a run with the same arguments as an earlier
+		 * one delivers its result to onSuccess at once, without executing. Not
+		 * supported by {@code service()}.
+		 * 
+		 * @param maxEntries number of results kept, least recently used are
+		 *                   evicted first
+		 * @param ttl        time a result stays valid
+		 */
+		public U cache(int maxEntries, Duration ttl) {
+			if (impl == Impl.SERVICE) {
+				throw new IllegalStateException("cache() is not supported by service()");
+			}
+			if (maxEntries < 1) {
+				throw new IllegalArgumentException("maxEntries < 1");
+			}
+			if (ttl.isNegative() || ttl.isZero()) {
+				throw new IllegalArgumentException("ttl <= 0");
+			}
+			options.cacheSize = maxEntries;
+			options.cacheTtl = ttl;
+			return (U) this;
+		}
+	}
+
 	private WorkersBuilder() {
 	}
 
+	/**
+	 * Runs all workers without their own executor on {@code exe}. The executor
+	 * is managed by the caller.
+	 * 
+	 * @param exe executor, {@code null} to restore the default provider
+	 */
 	public static void setExecutor(Executor exe) {
-		WorkersBuilder.executor = exe;
+		setExecutorProvider(exe == null ? null : ExecutorProviders.of(exe));
+	}
+
+	/**
+	 * Runs all workers without their own executor on the provider's executor.
+	 * The previous provider is not shut down.
+	 * 
+	 * @param provider provider, {@code null} to restore the default one
+	 * @see ExecutorProviders
+	 */
+	public static void setExecutorProvider(ExecutorProvider provider) {
+		WorkersBuilder.executorProvider = provider == null ? ExecutorProviders.defaultProvider() : provider;
+	}
+
+	/**
+	 * Defines an execution lane with its own pool of {@code threads} daemon
+	 * threads, or resizes an existing one. Workers pick a lane with
+	 * {@code lane(name)} on the builder.
+	 */
+	public static void defineLane(String name, int threads) {
+		WorkerLane.define(name, threads);
+	}
+
+	/**
+	 * Defines a worker group, or changes its settings: at most
+	 * {@code maxConcurrency} executions of its workers run at once, and the
+	 * rest wait in the group's queue. When groups compete for the threads of a
+	 * pool, each gets a share proportional to its {@code weight}. Workers join
+	 * a group with {@code group(name)} on the builder. The group
+	 * {@code default}, without a limit, is reserved for prioritized workers
+	 * without a group.
+	 */
+	public static void defineGroup(String name, int maxConcurrency, int weight) {
+		WorkerGroup.define(name, maxConcurrency, weight);
+	}
+
+	/**
+	 * Defines a group of weight 1.
+	 * 
+	 * @see #defineGroup(String, int, int)
+	 */
+	public static void defineGroup(String name, int maxConcurrency) {
+		defineGroup(name, maxConcurrency, 1);
+	}
+
+	/**
+	 * Sets how many results are kept for stale-while-revalidate workers, over
+	 * all keys. Least recently used results are evicted first.
+	 */
+	public static void setStaleRetention(int maxEntries) {
+		StaleWhileRevalidate.setRetention(maxEntries);
+	}
+
+	/**
+	 * Shuts down the executor of the current provider, the lanes and the shared
+	 * timer, waiting up to {@code timeout} for running tasks. They are created
+	 * again when a worker runs later.
+	 */
+	public static void shutdown(Duration timeout) {
+		executorProvider.shutdown(timeout);
+		WorkerLane.all().forEach(lane -> lane.shutdown(timeout));
+		WorkersScheduler.shutdown();
+		CancellationSource.shutdown();
+	}
+
+	static Executor defaultExecutor() {
+		return executorProvider.getExecutor();
+	}
+
+	/**
+	 * Limits the time spent on worker callbacks per JavaFX pulse. Callbacks
+	 * left over are run on the next pulse, in order.
+	 * 
+	 * @param budget time per pulse, {@code null} or zero for no limit
+	 */
+	public static void setFrameBudget(Duration budget) {
+		FxDispatcher.setFrameBudget(budget);
+	}
+
+	public static WorkersMetrics metrics() {
+		return WorkersMetrics.INSTANCE;
 	}
 
 	public static class ConsumerWorkerBuilder<T> extends Builder<T, ConsumerWorkerBuilder<T>, UniArgWorker<T>> {
@@ -158,6 +550,11 @@ public class WorkersBuilder {
 			this.consum = consum;
 		}
 
+		@Override
+		protected Object function() {
+			return consum;
+		}
+
 		@Override
 		protected UniArgWorker<T> doBuild() {
 			switch (impl) {
@@ -206,6 +603,11 @@ public class WorkersBuilder {
 			this.consum = consum;
 		}
 
+		@Override
+		protected Object function() {
+			return consum;
+		}
+
 		@Override
 		protected BiArgWorker<T, U> doBuild() {
 			switch (impl) {
@@ -246,7 +648,8 @@ public class WorkersBuilder {
 
 	}
 
-	public static class FunctionWorkerBuilder<T, R> extends Builder<R, FunctionWorkerBuilder<T, R>, UniArgWorker<T>> {
+	public static class FunctionWorkerBuilder<T, R>
+			extends CachingBuilder<R, FunctionWorkerBuilder<T, R>, FunctionWorker<T, R>> {
 
 		private Function<T, R> func;
 
@@ -254,33 +657,77 @@ public class WorkersBuilder {
 			this.func = func;
 		}
 
+		/**
+		 * Applies {@code fn} to the result in the same background thread, with
+		 * no FX-thread round trip. onSuccess gets the result of the last stage,
+		 * onError the first error.
+		 */
+		public <R2> FunctionWorkerBuilder<T, R2> then(Function<? super R, R2> fn) {
+			return stage(new Stage(fn, false, null));
+		}
+
+		/**
+		 * Like {@link #then(Function)}, on an executor of the provider. The
+		 * previous stage's thread is released.
+		 */
+		public <R2> FunctionWorkerBuilder<T, R2> thenAsync(Function<? super R, R2> fn) {
+			return stage(new Stage(fn, true, null));
+		}
+
+		/**
+		 * Like {@link #then(Function)}, on the pool of a lane.
+		 */
+		public <R2> FunctionWorkerBuilder<T, R2> thenAsync(Function<? super R, R2> fn, String lane) {
+			WorkerLane.get(lane);
+			return stage(new Stage(fn, true, lane));
+		}
+
+		@SuppressWarnings("unchecked")
+		private <R2> FunctionWorkerBuilder<T, R2> stage(Stage stage) {
+			// the body still returns the first stage's input, the pipeline makes R2 of it
+			return next(new FunctionWorkerBuilder<T, R2>((Function<T, R2>) (Function<T, ?>) func), stage);
+		}
+
 		@Override
-		protected UniArgWorker<T> doBuild() {
+		protected Object function() {
+			return func;
+		}
+
+		@Override
+		protected FunctionWorker<T, R> doBuild() {
+			return doBuild(func, onSuccess);
+		}
+
+		/**
+		 * @return worker executing {@code body}, with {@code success} as
+		 *         onSuccess
+		 */
+		protected FunctionWorker<T, R> doBuild(Function<T, R> body, Consumer<R> success) {
 			switch (impl) {
 			case SERVICE:
-				return new FxServiceWorkerImpl<T, Void, Void, Void, R>(onSuccess, onError, onRun, onComplete) {
+				return new FxServiceWorkerImpl<T, Void, Void, Void, R>(success, onError, onRun, onComplete) {
 
 					@Override
 					protected R exec(VarArg<T, Void, Void, Void> arg) {
-						return func.apply(arg.getA());
+						return body.apply(arg.getA());
 					}
 
 				};
 			case FUTURE:
-				return new FutureWorkerImpl<T, Void, Void, Void, R>(onSuccess, onError, onRun, onComplete) {
+				return new FutureWorkerImpl<T, Void, Void, Void, R>(success, onError, onRun, onComplete) {
 
 					@Override
 					protected R exec(VarArg<T, Void, Void, Void> arg) {
-						return func.apply(arg.getA());
+						return body.apply(arg.getA());
 					}
 
 				};
 			case COMPLETABLE_FUTURE:
-				return new CompletableFutureWorkerImpl<T, Void, Void, Void, R>(onSuccess, onError, onRun, onComplete) {
+				return new CompletableFutureWorkerImpl<T, Void, Void, Void, R>(success, onError, onRun, onComplete) {
 
 					@Override
 					protected R exec(VarArg<T, Void, Void, Void> arg) {
-						return func.apply(arg.getA());
+						return body.apply(arg.getA());
 					}
 
 				};
@@ -291,7 +738,7 @@ public class WorkersBuilder {
 	}
 
 	public static class BiFunctionWorkerBuilder<T, U, R>
-			extends Builder<R, BiFunctionWorkerBuilder<T, U, R>, BiArgWorker<T, U>> {
+			extends CachingBuilder<R, BiFunctionWorkerBuilder<T, U, R>, BiFunctionWorker<T, U, R>> {
 
 		private BiFunction<T, U, R> func;
 
@@ -299,8 +746,44 @@ public class WorkersBuilder {
 			this.func = func;
 		}
 
+		/**
+		 * Applies {@code fn} to the result in the same background thread, with
+		 * no FX-thread round trip. onSuccess gets the result of the last stage,
+		 * onError the first error.
+		 */
+		public <R2> BiFunctionWorkerBuilder<T, U, R2> then(Function<? super R, R2> fn) {
+			return stage(new Stage(fn, false, null));
+		}
+
+		/**
+		 * Like {@link #then(Function)}, on an executor of the provider. The
+		 * previous stage's thread is released.
+		 */
+		public <R2> BiFunctionWorkerBuilder<T, U, R2> thenAsync(Function<? super R, R2> fn) {
+			return stage(new Stage(fn, true, null));
+		}
+
+		/**
+		 * Like {@link #then(Function)}, on the pool of a lane.
+		 */
+		public <R2> BiFunctionWorkerBuilder<T, U, R2> thenAsync(Function<? super R, R2> fn, String lane) {
+			WorkerLane.get(lane);
+			return stage(new Stage(fn, true, lane));
+		}
+
+		@SuppressWarnings("unchecked")
+		private <R2> BiFunctionWorkerBuilder<T, U, R2> stage(Stage stage) {
+			// the body still returns the first stage's input, the pipeline makes R2 of it
+			return next(new BiFunctionWorkerBuilder<T, U, R2>((BiFunction<T, U, R2>) (BiFunction<T, U, ?>) func), stage);
+		}
+
 		@Override
-		protected BiArgWorker<T, U> doBuild() {
+		protected Object function() {
+			return func;
+		}
+
+		@Override
+		protected BiFunctionWorker<T, U, R> doBuild() {
 			switch (impl) {
 			case SERVICE:
 				return new FxServiceWorkerImpl<T, U, Void, Void, R>(onSuccess, onError, onRun, onComplete) {
@@ -335,42 +818,540 @@ public class WorkersBuilder {
 
 	}
 
-	public static class SupplierWorkerBuilder<T> extends Builder<T, SupplierWorkerBuilder<T>, ZeroArgWorker> {
+	public static class BatchFunctionWorkerBuilder<T, R>
+			extends Builder<R, BatchFunctionWorkerBuilder<T, R>, FunctionWorker<T, R>> {
+
+		private Function<List<T>, Map<T, R>> func;
+
+		private BiConsumer<T, R> onResult;
+
+		private Duration window = Duration.ofMillis(10);
+
+		private int maxBatchSize = 100;
+
+		public BatchFunctionWorkerBuilder(Function<List<T>, Map<T, R>> func) {
+			this.func = func;
+		}
+
+		/**
+		 * Called for each argument of the batch found in the bulk result, after
+		 * {@code onSuccess(Consumer)}.
+		 */
+		public BatchFunctionWorkerBuilder<T, R> onSuccess(BiConsumer<T, R> c) {
+			if (onResult == null) {
+				onResult = c;
+			} else {
+				onResult = onResult.andThen(c);
+			}
+			return this;
+		}
+
+		/**
+		 * Time a batch collects arguments after the first one, 10 ms by default.
+		 */
+		public BatchFunctionWorkerBuilder<T, R> window(Duration window) {
+			if (window.isNegative()) {
+				throw new IllegalArgumentException("window < 0");
+			}
+			this.window = window;
+			return this;
+		}
+
+		/**
+		 * Executes a batch at once when it has {@code maxBatchSize} distinct
+		 * arguments, 100 by default.
+		 */
+		public BatchFunctionWorkerBuilder<T, R> maxBatchSize(int maxBatchSize) {
+			if (maxBatchSize < 1) {
+				throw new IllegalArgumentException("maxBatchSize < 1");
+			}
+			this.maxBatchSize = maxBatchSize;
+			return this;
+		}
+
+		@Override
+		protected Object function() {
+			return func;
+		}
+
+		/**
+		 * Batches run on lanes, groups and executors only.
+		 */
+		@Override
+		protected void checkSupported(String option) {
+			throw new IllegalStateException(option + " is not supported by batch workers");
+		}
+
+		@Override
+		protected FunctionWorker<T, R> doBuild() {
+			Consumer<R> success = successHandler();
+			BiConsumer<T, R> result = onResult == null ? (key, r) -> success.accept(r) : (key, r) -> {
+				success.accept(r);
+				onResult.accept(key, r);
+			};
+			return new BatchWorkerImpl<>(func, result, onError, onRun, onComplete, window, maxBatchSize);
+		}
+
+	}
+
+	public static class StreamSupplierWorkerBuilder<T>
+			extends Builder<Void, StreamSupplierWorkerBuilder<T>, ZeroArgWorker> {
+
+		private Consumer<ListSink<T>> producer;
+
+		private ObservableList<T> target;
+
+		private int chunkSize = 1000;
+
+		private int bufferSize = 10000;
+
+		public StreamSupplierWorkerBuilder(Consumer<ListSink<T>> producer) {
+			this.producer = producer;
+		}
+
+		/**
+		 * Target list: the first chunk of each run replaces its contents, later
+		 * chunks are appended.
+		 */
+		public StreamSupplierWorkerBuilder<T> appendTo(ObservableList<T> list) {
+			this.target = list;
+			return this;
+		}
+
+		/**
+		 * Appends at most {@code chunkSize} elements at a time, 1000 by default.
+		 */
+		public StreamSupplierWorkerBuilder<T> chunkSize(int chunkSize) {
+			if (chunkSize < 1) {
+				throw new IllegalArgumentException("chunkSize < 1");
+			}
+			this.chunkSize = chunkSize;
+			return this;
+		}
+
+		/**
+		 * Elements waiting for the FX thread, 10000 by default: a producer that
+		 * gets ahead by more blocks in {@link ListSink#push(Object)}.
+		 */
+		public StreamSupplierWorkerBuilder<T> bufferSize(int bufferSize) {
+			if (bufferSize < 1) {
+				throw new IllegalArgumentException("bufferSize < 1");
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		@Override
+		protected Object function() {
+			return producer;
+		}
+
+		@Override
+		protected ZeroArgWorker doBuild() {
+			ListStream<T> stream = new ListStream<>(Objects.requireNonNull(target, "appendTo"), chunkSize,
+					bufferSize);
+			Consumer<Void> success = successHandler();
+			switch (impl) {
+			case SERVICE:
+				return new FxServiceWorkerImpl<Void, Void, Void, Void, Void>(success, onError, onRun, onComplete) {
+
+					@Override
+					protected Void exec(VarArg<Void, Void, Void, Void> arg) {
+						stream.produce(producer);
+						return null;
+					}
+
+				};
+			case FUTURE:
+				return new FutureWorkerImpl<Void, Void, Void, Void, Void>(success, onError, onRun, onComplete) {
+
+					@Override
+					protected Void exec(VarArg<Void, Void, Void, Void> arg) {
+						stream.produce(producer);
+						return null;
+					}
+
+				};
+			case COMPLETABLE_FUTURE:
+				return new CompletableFutureWorkerImpl<Void, Void, Void, Void, Void>(success, onError, onRun,
+						onComplete) {
+
+					@Override
+					protected Void exec(VarArg<Void, Void, Void, Void> arg) {
+						stream.produce(producer);
+						return null;
+					}
+
+				};
+			}
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	public static class StreamFunctionWorkerBuilder<A, T>
+			extends Builder<Void, StreamFunctionWorkerBuilder<A, T>, UniArgWorker<A>> {
+
+		private BiConsumer<A, ListSink<T>> producer;
+
+		private ObservableList<T> target;
+
+		private int chunkSize = 1000;
+
+		private int bufferSize = 10000;
+
+		public StreamFunctionWorkerBuilder(BiConsumer<A, ListSink<T>> producer) {
+			this.producer = producer;
+		}
+
+		/**
+		 * Target list: the first chunk of each run replaces its contents, later
+		 * chunks are appended.
+		 */
+		public StreamFunctionWorkerBuilder<A, T> appendTo(ObservableList<T> list) {
+			this.target = list;
+			return this;
+		}
+
+		/**
+		 * Appends at most {@code chunkSize} elements at a time, 1000 by default.
+		 */
+		public StreamFunctionWorkerBuilder<A, T> chunkSize(int chunkSize) {
+			if (chunkSize < 1) {
+				throw new IllegalArgumentException("chunkSize < 1");
+			}
+			this.chunkSize = chunkSize;
+			return this;
+		}
+
+		/**
+		 * Elements waiting for the FX thread, 10000 by default: a producer that
+		 * gets ahead by more blocks in {@link ListSink#push(Object)}.
+		 */
+		public StreamFunctionWorkerBuilder<A, T> bufferSize(int bufferSize) {
+			if (bufferSize < 1) {
+				throw new IllegalArgumentException("bufferSize < 1");
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		@Override
+		protected Object function() {
+			return producer;
+		}
+
+		@Override
+		protected UniArgWorker<A> doBuild() {
+			ListStream<T> stream = new ListStream<>(Objects.requireNonNull(target, "appendTo"), chunkSize,
+					bufferSize);
+			Consumer<Void> success = successHandler();
+			switch (impl) {
+			case SERVICE:
+				return new FxServiceWorkerImpl<A, Void, Void, Void, Void>(success, onError, onRun, onComplete) {
+
+					@Override
+					protected Void exec(VarArg<A, Void, Void, Void> arg) {
+						stream.produce(sink -> producer.accept(arg.getA(), sink));
+						return null;
+					}
+
+				};
+			case FUTURE:
+				return new FutureWorkerImpl<A, Void, Void, Void, Void>(success, onError, onRun, onComplete) {
+
+					@Override
+					protected Void exec(VarArg<A, Void, Void, Void> arg) {
+						stream.produce(sink -> producer.accept(arg.getA(), sink));
+						return null;
+					}
+
+				};
+			case COMPLETABLE_FUTURE:
+				return new CompletableFutureWorkerImpl<A, Void, Void, Void, Void>(success, onError, onRun, onComplete) {
+
+					@Override
+					protected Void exec(VarArg<A, Void, Void, Void> arg) {
+						stream.produce(sink -> producer.accept(arg.getA(), sink));
+						return null;
+					}
+
+				};
+			}
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public static class PagedListBuilder<T> {
+
+		private final PageSource<T> source;
+
+		private int pageSize = 100;
+
+		private int maxPages = 20;
+
+		private int prefetch = 1;
+
+		private String lane = IO_LANE;
+
+		private Consumer<Throwable> onError = (Consumer<Throwable>) NOOP_C;
+
+		public PagedListBuilder(PageSource<T> source) {
+			this.source = source;
+		}
+
+		/**
+		 * Rows per page, 100 by default.
+		 */
+		public PagedListBuilder<T> pageSize(int pageSize) {
+			if (pageSize < 1) {
+				throw new IllegalArgumentException("pageSize < 1");
+			}
+			this.pageSize = pageSize;
+			return this;
+		}
+
+		/**
+		 * Pages held in memory, 20 by default. Should cover the visible rows and
+		 * the prefetched pages.
+		 */
+		public PagedListBuilder<T> maxPages(int maxPages) {
+			if (maxPages < 1) {
+				throw new IllegalArgumentException("maxPages < 1");
+			}
+			this.maxPages = maxPages;
+			return this;
+		}
+
+		/**
+		 * Pages loaded ahead on each side of a page that is read, 1 by default.
+		 */
+		public PagedListBuilder<T> prefetch(int prefetch) {
+			if (prefetch < 0) {
+				throw new IllegalArgumentException("prefetch < 0");
+			}
+			this.prefetch = prefetch;
+			return this;
+		}
+
+		/**
+		 * Loads pages on the pool of a lane, {@link WorkersBuilder#IO_LANE} by
+		 * default.
+		 */
+		public PagedListBuilder<T> lane(String name) {
+			WorkerLane.get(name);
+			this.lane = name;
+			return this;
+		}
+
+		public PagedListBuilder<T> onError(Consumer<Throwable> c) {
+			onError = onError.andThen(c);
+			return this;
+		}
+
+		/**
+		 * @return the list, starting to load its size
+		 */
+		public PagedList<T> build() {
+			PagedList<T> list = new PagedList<>(source, pageSize, maxPages, prefetch, lane, onError);
+			list.refresh();
+			return list;
+		}
+	}
+
+	public static class ParallelMapWorkerBuilder<T, R>
+			extends Builder<List<R>, ParallelMapWorkerBuilder<T, R>, UniArgWorker<Collection<T>>> {
+
+		private Function<T, R> mapper;
+
+		private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+		private DoubleConsumer onProgress;
+
+		public ParallelMapWorkerBuilder(Function<T, R> mapper) {
+			this.mapper = mapper;
+		}
+
+		/**
+		 * Pool that maps the elements, the common pool by default. The worker's
+		 * executor only waits for the result.
+		 */
+		public ParallelMapWorkerBuilder<T, R> pool(ForkJoinPool pool) {
+			this.pool = pool;
+			return this;
+		}
+
+		/**
+		 * Called with the share of mapped elements, from 0 to 1, while the run
+		 * is in progress.
+		 */
+		public ParallelMapWorkerBuilder<T, R> onProgress(DoubleConsumer c) {
+			onProgress = onProgress == null ? c : onProgress.andThen(c);
+			return this;
+		}
+
+		@Override
+		protected Object function() {
+			return mapper;
+		}
+
+		@Override
+		protected UniArgWorker<Collection<T>> doBuild() {
+			ParallelMap<T, R> parallelMap = new ParallelMap<>(mapper, pool, onProgress);
+			switch (impl) {
+			case SERVICE:
+				return new FxServiceWorkerImpl<Collection<T>, Void, Void, Void, List<R>>(onSuccess, onError, onRun,
+						onComplete) {
+
+					@Override
+					protected List<R> exec(VarArg<Collection<T>, Void, Void, Void> arg) {
+						return parallelMap.apply(arg.getA());
+					}
+
+				};
+			case FUTURE:
+				return new FutureWorkerImpl<Collection<T>, Void, Void, Void, List<R>>(onSuccess, onError, onRun,
+						onComplete) {
+
+					@Override
+					protected List<R> exec(VarArg<Collection<T>, Void, Void, Void> arg) {
+						return parallelMap.apply(arg.getA());
+					}
+
+				};
+			case COMPLETABLE_FUTURE:
+				return new CompletableFutureWorkerImpl<Collection<T>, Void, Void, Void, List<R>>(onSuccess, onError,
+						onRun, onComplete) {
+
+					@Override
+					protected List<R> exec(VarArg<Collection<T>, Void, Void, Void> arg) {
+						return parallelMap.apply(arg.getA());
+					}
+
+				};
+			}
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	public static class SupplierWorkerBuilder<T> extends Builder<T, SupplierWorkerBuilder<T>, SupplierWorker<T>> {
 
 		private Supplier<T> func;
 
+		private Object staleKey;
+
+		private Duration staleMaxAge;
+
 		public SupplierWorkerBuilder(Supplier<T> func) {
 			this.func = func;
 		}
 
+		/**
+		 * Applies {@code fn} to the result in the same background thread, with
+		 * no FX-thread round trip. onSuccess gets the result of the last stage,
+		 * onError the first error.
+		 */
+		public <R2> SupplierWorkerBuilder<R2> then(Function<? super T, R2> fn) {
+			return stage(new Stage(fn, false, null));
+		}
+
+		/**
+		 * Like {@link #then(Function)}, on an executor of the provider. The
+		 * previous stage's thread is released.
+		 */
+		public <R2> SupplierWorkerBuilder<R2> thenAsync(Function<? super T, R2> fn) {
+			return stage(new Stage(fn, true, null));
+		}
+
+		/**
+		 * Like {@link #then(Function)}, on the pool of a lane.
+		 */
+		public <R2> SupplierWorkerBuilder<R2> thenAsync(Function<? super T, R2> fn, String lane) {
+			WorkerLane.get(lane);
+			return stage(new Stage(fn, true, lane));
+		}
+
+		@SuppressWarnings("unchecked")
+		private <R2> SupplierWorkerBuilder<R2> stage(Stage stage) {
+			// the body still returns the first stage's input, the pipeline makes R2 of it
+			return next(new SupplierWorkerBuilder<R2>((Supplier<R2>) (Supplier<?>) func), stage);
+		}
+
+		/**
+		 * Delivers the last successful result stored under {@code key} to
+		 * onSuccess as soon as a run starts, while the supplier runs in the
+		 * background. The fresh result is delivered only if it differs from the
+		 * stale one. Results are shared by all workers using the same key.
+		 * 
+		 * @param key    identifies the data, like a screen or query name
+		 * @param maxAge older results are not shown
+		 * @see WorkersBuilder#setStaleRetention(int)
+		 */
+		public SupplierWorkerBuilder<T> staleWhileRevalidate(Object key, Duration maxAge) {
+			this.staleKey = Objects.requireNonNull(key, "key");
+			this.staleMaxAge = Objects.requireNonNull(maxAge, "maxAge");
+			return this;
+		}
+
 		@Override
-		protected ZeroArgWorker doBuild() {
+		protected void checkStage() {
+			super.checkStage();
+			if (staleKey != null) {
+				throw new IllegalStateException("staleWhileRevalidate() must follow the last pipeline stage");
+			}
+		}
+
+		@Override
+		protected Object function() {
+			return func;
+		}
+
+		@Override
+		protected SupplierWorker<T> doBuild() {
+			return doBuild(func, onSuccess);
+		}
+
+		/**
+		 * @return worker executing {@code body}, with {@code success} as
+		 *         onSuccess
+		 */
+		protected SupplierWorker<T> doBuild(Supplier<T> body, Consumer<T> success) {
+			Runnable run = onRun;
+			Consumer<T> deliver = success;
+			if (staleKey != null) {
+				StaleWhileRevalidate<T> stale = new StaleWhileRevalidate<>(staleKey, staleMaxAge);
+				run = stale.wrapRun(onRun, success);
+				deliver = stale.wrapSuccess(success);
+			}
 			switch (impl) {
 			case SERVICE:
-				return new FxServiceWorkerImpl<Void, Void, Void, Void, T>(onSuccess, onError, onRun, onComplete) {
+				return new FxServiceWorkerImpl<Void, Void, Void, Void, T>(deliver, onError, run, onComplete) {
 
 					@Override
 					protected T exec(VarArg<Void, Void, Void, Void> arg) {
-						return func.get();
+						return body.get();
 					}
 
 				};
 			case FUTURE:
-				return new FutureWorkerImpl<Void, Void, Void, Void, T>(onSuccess, onError, onRun, onComplete) {
+				return new FutureWorkerImpl<Void, Void, Void, Void, T>(deliver, onError, run, onComplete) {
 
 					@Override
 					protected T exec(VarArg<Void, Void, Void, Void> arg) {
-						return func.get();
+						return body.get();
 					}
 
 				};
 			case COMPLETABLE_FUTURE:
-				return new CompletableFutureWorkerImpl<Void, Void, Void, Void, T>(onSuccess, onError, onRun,
+				return new CompletableFutureWorkerImpl<Void, Void, Void, Void, T>(deliver, onError, run,
 						onComplete) {
 
 					@Override
 					protected T exec(VarArg<Void, Void, Void, Void> arg) {
-						return func.get();
+						return body.get();
 					}
 
 				};
@@ -382,6 +1363,10 @@ public class WorkersBuilder {
 
 	public static class ListSupplierWorkerBuilder<T> extends SupplierWorkerBuilder<List<T>> {
 
+		private ObservableList<T> patchTarget;
+
+		private Function<? super T, ?> patchKey;
+
 		public ListSupplierWorkerBuilder(Supplier<List<T>> sup) {
 			super(sup);
 		}
@@ -390,10 +1375,55 @@ public class WorkersBuilder {
 			onSuccess = (l) -> list.setAll(l);
 			return this;
 		}
+
+		/**
+		 * Like {@link #setAllTo(ObservableList)}, but applies only the
+		 * difference to the current contents: removals, insertions, and updates
+		 * of elements with equal keys. The difference is computed in the worker
+		 * thread, so rows that didn't change keep their cells and selection.
+		 * The list is updated before onSuccess callbacks are called.
+		 */
+		public ListSupplierWorkerBuilder<T> patchInto(ObservableList<T> list, Function<? super T, ?> keyExtractor) {
+			if (patchTarget != null) {
+				throw new IllegalStateException("patchInto() is already set");
+			}
+			patchTarget = Objects.requireNonNull(list, "list");
+			patchKey = Objects.requireNonNull(keyExtractor, "keyExtractor");
+			return this;
+		}
+
+		@Override
+		protected void checkStage() {
+			super.checkStage();
+			if (patchTarget != null) {
+				throw new IllegalStateException("patchInto() can't be followed by a pipeline stage");
+			}
+		}
+
+		@Override
+		protected SupplierWorker<List<T>> doBuild() {
+			if (patchTarget == null) {
+				return super.doBuild();
+			}
+			ListPatcher<T> patcher = new ListPatcher<>(patchTarget, patchKey);
+			Supplier<List<T>> f = ((SupplierWorkerBuilder<List<T>>) this).func;
+			Consumer<List<T>> apply = patcher::apply;
+			return doBuild(() -> patcher.prepare(f.get()), apply.andThen(onSuccess));
+		}
+
+		@Override
+		public ListSupplierWorkerBuilder<T> staleWhileRevalidate(Object key, Duration maxAge) {
+			super.staleWhileRevalidate(key, maxAge);
+			return this;
+		}
 	}
 
 	public static class ListFunctionWorkerBuilder<T, R> extends FunctionWorkerBuilder<T, List<R>> {
 
+		private ObservableList<R> patchTarget;
+
+		private Function<? super R, ?> patchKey;
+
 		public ListFunctionWorkerBuilder(Function<T, List<R>> func) {
 			super(func);
 		}
@@ -402,6 +1432,37 @@ public class WorkersBuilder {
 			onSuccess = (l) -> list.setAll(l);
 			return this;
 		}
+
+		/**
+		 * @see ListSupplierWorkerBuilder#patchInto(ObservableList, Function)
+		 */
+		public ListFunctionWorkerBuilder<T, R> patchInto(ObservableList<R> list, Function<? super R, ?> keyExtractor) {
+			if (patchTarget != null) {
+				throw new IllegalStateException("patchInto() is already set");
+			}
+			patchTarget = Objects.requireNonNull(list, "list");
+			patchKey = Objects.requireNonNull(keyExtractor, "keyExtractor");
+			return this;
+		}
+
+		@Override
+		protected void checkStage() {
+			super.checkStage();
+			if (patchTarget != null) {
+				throw new IllegalStateException("patchInto() can't be followed by a pipeline stage");
+			}
+		}
+
+		@Override
+		protected FunctionWorker<T, List<R>> doBuild() {
+			if (patchTarget == null) {
+				return super.doBuild();
+			}
+			ListPatcher<R> patcher = new ListPatcher<>(patchTarget, patchKey);
+			Function<T, List<R>> f = ((FunctionWorkerBuilder<T, List<R>>) this).func;
+			Consumer<List<R>> apply = patcher::apply;
+			return doBuild(a -> patcher.prepare(f.apply(a)), apply.andThen(onSuccess));
+		}
 	}
 
 	//
@@ -426,6 +1487,138 @@ public class WorkersBuilder {
 		return new ListFunctionWorkerBuilder<>(func);
 	}
 
+	/**
+	 * Worker that collects the arguments of runs over a short window and
+	 * executes them with one bulk call. Results are delivered per argument:
+	 * onSuccess callbacks, including a {@link Runnable} one, are called once
+	 * for each argument found in the bulk result. Batches run on lanes, groups
+	 * and executors; {@code service()}, run policies, conflation, single flight,
+	 * timeouts and retries are rejected.
+	 */
+	public static <T, R> BatchFunctionWorkerBuilder<T, R> batchFunction(Function<List<T>, Map<T, R>> func) {
+		return new BatchFunctionWorkerBuilder<>(func);
+	}
+
+	/**
+	 * Worker whose body pushes list elements into a sink as they are produced.
+	 * They are appended to the target list in chunks while the body runs.
+	 */
+	public static <T> StreamSupplierWorkerBuilder<T> streamSupplier(Consumer<ListSink<T>> producer) {
+		return new StreamSupplierWorkerBuilder<>(producer);
+	}
+
+	/**
+	 * Streaming list worker with an argument.
+	 * 
+	 * @see #streamSupplier(Consumer)
+	 */
+	public static <A, T> StreamFunctionWorkerBuilder<A, T> streamFunction(BiConsumer<A, ListSink<T>> producer) {
+		return new StreamFunctionWorkerBuilder<>(producer);
+	}
+
+	/**
+	 * List of all rows of {@code source} that loads pages on demand, as a
+	 * control reads them.
+	 */
+	public static <T> PagedListBuilder<T> pagedList(PageSource<T> source) {
+		return new PagedListBuilder<>(source);
+	}
+
+	/**
+	 * Worker that maps the elements of a collection in parallel on a
+	 * ForkJoinPool and delivers the results in input order.
+	 */
+	public static <T, R> ParallelMapWorkerBuilder<T, R> parallelMap(Function<T, R> mapper) {
+		return new ParallelMapWorkerBuilder<>(mapper);
+	}
+
+	/**
+	 * Worker over a non-blocking function: the returned stage is awaited
+	 * without holding a thread, and superseding a run cancels it. Results,
+	 * errors and pipeline stages are handled like those of
+	 * {@link #function(Function)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, R> FunctionWorkerBuilder<T, R> asyncFunction(Function<T, ? extends CompletionStage<R>> func) {
+		FunctionWorkerBuilder<T, R> builder = new FunctionWorkerBuilder<>((Function<T, R>) (Function<T, ?>) func);
+		builder.options.asyncBody = true;
+		return builder;
+	}
+
+	/**
+	 * @see #asyncFunction(Function)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, U, R> BiFunctionWorkerBuilder<T, U, R> asyncBiFunction(
+			BiFunction<T, U, ? extends CompletionStage<R>> func) {
+		BiFunctionWorkerBuilder<T, U, R> builder = new BiFunctionWorkerBuilder<>(
+				(BiFunction<T, U, R>) (BiFunction<T, U, ?>) func);
+		builder.options.asyncBody = true;
+		return builder;
+	}
+
+	/**
+	 * @see #asyncFunction(Function)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> SupplierWorkerBuilder<T> asyncSupplier(Supplier<? extends CompletionStage<T>> sup) {
+		SupplierWorkerBuilder<T> builder = new SupplierWorkerBuilder<>((Supplier<T>) (Supplier<?>) sup);
+		builder.options.asyncBody = true;
+		return builder;
+	}
+
+	/**
+	 * Worker over a function that gets the run's {@link CancellationToken}: it
+	 * is tripped when the run is superseded, so the body can stop without
+	 * relying on interrupts.
+	 */
+	public static <T, R> FunctionWorkerBuilder<T, R> cancellableFunction(BiFunction<T, CancellationToken, R> func) {
+		FunctionWorkerBuilder<T, R> builder = new FunctionWorkerBuilder<>(
+				(T t) -> func.apply(t, CancellationSource.current()));
+		builder.origin = func;
+		return builder;
+	}
+
+	/**
+	 * @see #cancellableFunction(BiFunction)
+	 */
+	public static <T> ConsumerWorkerBuilder<T> cancellableConsumer(BiConsumer<T, CancellationToken> consum) {
+		ConsumerWorkerBuilder<T> builder = new ConsumerWorkerBuilder<T>(
+				(T t) -> consum.accept(t, CancellationSource.current()));
+		builder.origin = consum;
+		return builder;
+	}
+
+	/**
+	 * @see #cancellableFunction(BiFunction)
+	 */
+	public static <T, U, R> BiFunctionWorkerBuilder<T, U, R> cancellableBiFunction(
+			CancellableBiFunction<T, U, R> func) {
+		BiFunctionWorkerBuilder<T, U, R> builder = new BiFunctionWorkerBuilder<>(
+				(T t, U u) -> func.apply(t, u, CancellationSource.current()));
+		builder.origin = func;
+		return builder;
+	}
+
+	/**
+	 * @see #cancellableFunction(BiFunction)
+	 */
+	public static <T, U> BiConsumerWorkerBuilder<T, U> cancellableBiConsumer(CancellableBiConsumer<T, U> consum) {
+		BiConsumerWorkerBuilder<T, U> builder = new BiConsumerWorkerBuilder<>(
+				(T t, U u) -> consum.accept(t, u, CancellationSource.current()));
+		builder.origin = consum;
+		return builder;
+	}
+
+	/**
+	 * @see #cancellableFunction(BiFunction)
+	 */
+	public static <T> SupplierWorkerBuilder<T> cancellableSupplier(Function<CancellationToken, T> sup) {
+		SupplierWorkerBuilder<T> builder = new SupplierWorkerBuilder<>(() -> sup.apply(CancellationSource.current()));
+		builder.origin = sup;
+		return builder;
+	}
+
 	public static <T, R> SupplierWorkerBuilder<T> supplier(Supplier<T> sup) {
 		return new SupplierWorkerBuilder<>(sup);
 	}
@@ -0,0 +1,197 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters of the workers infrastructure, shared by all workers.
+ *
+ * @see WorkersBuilder#metrics()
+ */
+public final class WorkersMetrics {
+
+	static final WorkersMetrics INSTANCE = new WorkersMetrics();
+
+	final LongAdder pendingCallbacks = new LongAdder();
+	final LongAdder deferredCallbacks = new LongAdder();
+	final LongAdder deferredDrains = new LongAdder();
+	final LongAdder suppressedResults = new LongAdder();
+	final LongAdder cacheHits = new LongAdder();
+	final LongAdder cacheMisses = new LongAdder();
+	final LongAdder sharedRuns = new LongAdder();
+	final LongAdder batches = new LongAdder();
+	final LongAdder batchedRuns = new LongAdder();
+	final LongAdder patchedUpdates = new LongAdder();
+	final LongAdder pageHits = new LongAdder();
+	final LongAdder pageMisses = new LongAdder();
+	final LongAdder timeouts = new LongAdder();
+	final LongAdder retries = new LongAdder();
+
+	private WorkersMetrics() {
+	}
+
+	/**
+	 * @return callbacks waiting in the FX dispatcher queue
+	 */
+	public long getPendingCallbacks() {
+		return pendingCallbacks.sum();
+	}
+
+	/**
+	 * @return callbacks that were left for a later pulse because the frame
+	 *         budget ran out, summed over all drains
+	 */
+	public long getDeferredCallbacks() {
+		return deferredCallbacks.sum();
+	}
+
+	/**
+	 * @return drains that ran out of frame budget
+	 */
+	public long getDeferredDrains() {
+		return deferredDrains.sum();
+	}
+
+	/**
+	 * @return results and errors of superseded runs that were dropped before
+	 *         reaching the FX thread
+	 */
+	public long getSuppressedResults() {
+		return suppressedResults.sum();
+	}
+
+	/**
+	 * @return runs answered from a worker's result cache
+	 */
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	/**
+	 * @return runs of caching workers that had to execute
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	/**
+	 * @return runs of single-flight workers that joined an identical execution
+	 *         in flight instead of starting their own
+	 */
+	public long getSharedRuns() {
+		return sharedRuns.sum();
+	}
+
+	/**
+	 * @return bulk executions of batch workers
+	 */
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	/**
+	 * @return distinct arguments executed by batch workers, over all batches
+	 */
+	public long getBatchedRuns() {
+		return batchedRuns.sum();
+	}
+
+	/**
+	 * @return list updates of {@code patchInto} workers applied as a patch
+	 *         rather than a full replace
+	 */
+	public long getPatchedUpdates() {
+		return patchedUpdates.sum();
+	}
+
+	/**
+	 * @return reads of paged lists answered from a loaded page
+	 */
+	public long getPageHits() {
+		return pageHits.sum();
+	}
+
+	/**
+	 * @return reads of paged lists that had to load their page
+	 */
+	public long getPageMisses() {
+		return pageMisses.sum();
+	}
+
+	/**
+	 * @return runs cancelled because they missed their timeout
+	 */
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * @return attempts scheduled again after a failure
+	 */
+	public long getRetries() {
+		return retries.sum();
+	}
+
+	/**
+	 * @param lane lane name, like {@link WorkersBuilder#CPU_LANE}
+	 * @return current load of the lane
+	 */
+	public LaneStats getLaneStats(String lane) {
+		return WorkerLane.get(lane).stats();
+	}
+
+	/**
+	 * @return current load of all lanes, by name
+	 */
+	public Map<String, LaneStats> getLaneStats() {
+		Map<String, LaneStats> stats = new TreeMap<>();
+		for (WorkerLane lane : WorkerLane.all()) {
+			LaneStats s = lane.stats();
+			stats.put(s.getName(), s);
+		}
+		return stats;
+	}
+
+	/**
+	 * @param group group name, see {@link WorkersBuilder#defineGroup(String, int, int)}
+	 * @return current load of the group
+	 */
+	public GroupStats getGroupStats(String group) {
+		return WorkerGroup.get(group).stats();
+	}
+
+	/**
+	 * @return current load of all worker groups, by name
+	 */
+	public Map<String, GroupStats> getGroupStats() {
+		Map<String, GroupStats> stats = new TreeMap<>();
+		for (WorkerGroup group : WorkerGroup.all()) {
+			GroupStats s = group.stats();
+			stats.put(s.getName(), s);
+		}
+		return stats;
+	}
+
+	/**
+	 * Resets cumulative counters. Gauges like {@link #getPendingCallbacks()}
+	 * are not affected.
+	 */
+	public void reset() {
+		deferredCallbacks.reset();
+		deferredDrains.reset();
+		suppressedResults.reset();
+		cacheHits.reset();
+		cacheMisses.reset();
+		sharedRuns.reset();
+		batches.reset();
+		batchedRuns.reset();
+		patchedUpdates.reset();
+		pageHits.reset();
+		pageMisses.reset();
+		timeouts.reset();
+		retries.reset();
+		WorkerLane.all().forEach(WorkerLane::resetStats);
+		WorkerGroup.all().forEach(WorkerGroup::resetStats);
+	}
+}
@@ -0,0 +1,53 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One shared timer thread for delayed worker actions (debounce and throttle
+ * windows, batch windows, retry backoff, run timeouts), instead of a scheduler
+ * per worker. Scheduled actions must be short: they only hand work over to the
+ * executors, the FX dispatcher or the cancellation hook pool.
+ */
+final class WorkersScheduler {
+
+	private static volatile ScheduledThreadPoolExecutor timer;
+
+	private WorkersScheduler() {
+	}
+
+	static ScheduledFuture<?> schedule(Runnable action, Duration delay) {
+		return timer().schedule(action, delay.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Drops pending actions; the timer is created again on next use.
+	 */
+	static void shutdown() {
+		ScheduledThreadPoolExecutor t;
+		synchronized (WorkersScheduler.class) {
+			t = timer;
+			timer = null;
+		}
+		if (t != null) {
+			t.shutdownNow();
+		}
+	}
+
+	private static ScheduledThreadPoolExecutor timer() {
+		ScheduledThreadPoolExecutor t = timer;
+		if (t == null) {
+			synchronized (WorkersScheduler.class) {
+				t = timer;
+				if (t == null) {
+					t = new ScheduledThreadPoolExecutor(1, new WorkerThreadFactory("fx-workers-timer"));
+					t.setRemoveOnCancelPolicy(true);
+					timer = t;
+				}
+			}
+		}
+		return t;
+	}
+}
@@ -0,0 +1,24 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual thread support, Java 21 variant.
+ */
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	static boolean isSupported() {
+		return true;
+	}
+
+	/**
+	 * @return executor starting a virtual thread per task
+	 */
+	static ExecutorService newExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fx-workers-virtual-", 1).factory());
+	}
+}
@@ -1,7 +1,11 @@
 package com.github.russ_p.fxworkers.builder;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -159,4 +163,71 @@ public class ImplementationsTest extends ApplicationTest {
 		System.out.println("ImplementationsTest.testFxServiceWorker()");
 	}
 
+	@Test
+	public void testConcurrentRunsFutureWorker() throws Exception {
+		FutureWorkerImpl<Void, Void, Void, Void, Integer> worker = new FutureWorkerImpl<Void, Void, Void, Void, Integer>(
+				this::handleSuccess, this::handleError,
+				this::handleRun, this::handleComplete) {
+
+			@Override
+			protected Integer exec(VarArg<Void, Void, Void, Void> arg) {
+				return counterDo.incrementAndGet();
+			}
+		};
+		runConcurrently(worker);
+		assertThat(worker.getState()).isEqualTo(WorkerState.IDLE);
+	}
+
+	@Test
+	public void testConcurrentRunsCompletableFutureWorker() throws Exception {
+		CompletableFutureWorkerImpl<Void, Void, Void, Void, Integer> worker = new CompletableFutureWorkerImpl<Void, Void, Void, Void, Integer>(
+				this::handleSuccess, this::handleError,
+				this::handleRun, this::handleComplete) {
+
+			@Override
+			protected Integer exec(VarArg<Void, Void, Void, Void> arg) {
+				return counterDo.incrementAndGet();
+			}
+		};
+		runConcurrently(worker);
+		assertThat(worker.getState()).isEqualTo(WorkerState.IDLE);
+	}
+
+	private void runConcurrently(ZeroArgWorker worker) throws Exception {
+		int threads = 8;
+		int runs = 1000;
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		worker.setExecutor(pool);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			CountDownLatch done = new CountDownLatch(threads);
+			for (int t = 0; t < threads; t++) {
+				new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+					}
+					for (int i = 0; i < runs; i++) {
+						worker.run();
+					}
+					done.countDown();
+				}).start();
+			}
+			start.countDown();
+			done.await();
+
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (counterComplete.get() < threads * runs && System.currentTimeMillis() < deadline) {
+			}
+			Thread.sleep(200);
+
+			assertThat(counterRun).hasValue(threads * runs);
+			assertThat(counterComplete).hasValue(threads * runs);
+			assertThat(counterSuccess.get()).isPositive().isLessThanOrEqualTo(counterDo.get());
+			assertThat(counterError).hasValue(0);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
 }
@@ -0,0 +1,120 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * FX-thread cost of a refresh that changes a few rows of a large list:
+ * {@code setAll} vs. applying a patch. A listener stands in for the table,
+ * visiting every added or updated row. {@code diff} is the part moved to the
+ * worker thread.
+ */
+public class ListPatchBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class RefreshPlan {
+
+		@Param({ "100000" })
+		public int rows;
+
+		@Param({ "10", "500" })
+		public int changes;
+
+		List<String> current;
+		List<String> refreshed;
+		ListPatch<String> patch;
+		ObservableList<String> target;
+		Blackhole blackhole;
+
+		@Setup(Level.Trial)
+		public void createLists(Blackhole blackhole) {
+			this.blackhole = blackhole;
+			Random random = new Random(1);
+			current = new ArrayList<>(rows);
+			for (int i = 0; i < rows; i++) {
+				current.add(i + ":" + random.nextInt(1000));
+			}
+			refreshed = new ArrayList<>(current);
+			for (int i = 0; i < changes; i++) {
+				int index = random.nextInt(refreshed.size());
+				switch (i % 3) {
+				case 0:
+					refreshed.set(index, index + ":" + random.nextInt(1000));
+					break;
+				case 1:
+					refreshed.remove(index);
+					break;
+				default:
+					refreshed.add(index, "new" + i + ":0");
+				}
+			}
+			patch = ListPatch.diff(current, refreshed, ListPatchBenchmark::key, ListPatcher.MAX_EDITS);
+		}
+
+		@Setup(Level.Invocation)
+		public void createTarget() {
+			target = FXCollections.observableArrayList(current);
+			target.addListener((ListChangeListener<String>) c -> {
+				while (c.next()) {
+					for (String row : c.getAddedSubList()) {
+						blackhole.consume(row.length());
+					}
+				}
+			});
+		}
+	}
+
+	private static String key(String row) {
+		return row.substring(0, row.indexOf(':'));
+	}
+
+	@Test
+	public void launchBenchmark() throws Exception {
+		Options opt = new OptionsBuilder()
+				.include(this.getClass().getName() + ".*")
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.warmupIterations(3)
+				.measurementIterations(5)
+				.forks(1)
+				.shouldFailOnError(true)
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	@Benchmark
+	public void setAll(RefreshPlan plan) {
+		plan.target.setAll(plan.refreshed);
+	}
+
+	@Benchmark
+	public void applyPatch(RefreshPlan plan) {
+		plan.patch.applyTo(plan.target);
+	}
+
+	@Benchmark
+	public ListPatch<String> diff(RefreshPlan plan) {
+		return ListPatch.diff(plan.current, plan.refreshed, ListPatchBenchmark::key, ListPatcher.MAX_EDITS);
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.github.russ_p.fxworkers.builder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testfx.api.FxToolkit;
+
+import com.github.russ_p.fxworkers.ZeroArgWorker;
+
+/**
+ * Blocking workers on the platform I/O pool vs. virtual threads. Needs Java
+ * 21 and the multi-release jar on the classpath: run by failsafe in the
+ * integration-test phase, against the packaged jar.
+ */
+public class VirtualThreadsBenchmarkIT {
+
+	@State(Scope.Benchmark)
+	public static class BlockingWorkersPlan {
+
+		@Param({ "1000", "10000", "100000" })
+		public int workers;
+
+		@Param({ WorkersBuilder.IO_LANE, WorkerLane.VIRTUAL })
+		public String lane;
+
+		@Param({ "10" })
+		public long blockMillis;
+
+		protected ZeroArgWorker[] pool;
+
+		/**
+		 * Workers are built once: an idle worker is run again by the next
+		 * invocation.
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws TimeoutException {
+			FxToolkit.registerPrimaryStage();
+			pool = new ZeroArgWorker[workers];
+			for (int i = 0; i < workers; i++) {
+				pool[i] = WorkersBuilder.supplier(this::block)
+						.lane(lane)
+						.build();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void cleanUp() throws TimeoutException {
+			FxToolkit.cleanupStages();
+		}
+
+		private Long block() {
+			try {
+				Thread.sleep(blockMillis);
+			} catch (InterruptedException e) {
+			}
+			return blockMillis;
+		}
+	}
+
+	@Test
+	public void launchBenchmark() throws Exception {
+		Assume.assumeTrue("virtual threads need Java 21", VirtualThreads.isSupported());
+
+		Options opt = new OptionsBuilder()
+				.include(this.getClass().getName() + ".*")
+				.mode(Mode.SingleShotTime)
+				.timeUnit(TimeUnit.MILLISECONDS)
+				.warmupIterations(2)
+				.measurementIterations(5)
+				.forks(1)
+				.shouldFailOnError(true)
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	@Benchmark
+	public void runBlockingWorkers(BlockingWorkersPlan plan) {
+		CompletableFuture<?>[] runs = new CompletableFuture<?>[plan.workers];
+		for (int i = 0; i < runs.length; i++) {
+			runs[i] = plan.pool[i].submit().toCompletableFuture();
+		}
+		CompletableFuture.allOf(runs).join();
+	}
+
+}
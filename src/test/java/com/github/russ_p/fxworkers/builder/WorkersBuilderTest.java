@@ -1,18 +1,52 @@
 package com.github.russ_p.fxworkers.builder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.testfx.framework.junit.ApplicationTest;
+import org.testfx.util.WaitForAsyncUtils;
 
 import com.github.russ_p.fxworkers.BiArgWorker;
+import com.github.russ_p.fxworkers.BiFunctionWorker;
+import com.github.russ_p.fxworkers.CancellationToken;
+import com.github.russ_p.fxworkers.FunctionWorker;
+import com.github.russ_p.fxworkers.ListSink;
+import com.github.russ_p.fxworkers.PageSource;
+import com.github.russ_p.fxworkers.SupplierWorker;
 import com.github.russ_p.fxworkers.UniArgWorker;
 import com.github.russ_p.fxworkers.ZeroArgWorker;
 
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 
 public class WorkersBuilderTest extends ApplicationTest {
 
@@ -198,4 +232,1610 @@ public class WorkersBuilderTest extends ApplicationTest {
 		assertThat(counterComplete).hasPositiveValue();
 		assertThat(counterError).hasPositiveValue();
 	}
+
+	@Test
+	public void testFxServiceRunFromBackgroundThread() throws Exception {
+		UniArgWorker<Object> worker = WorkersBuilder.consumer(a -> doSmt())
+				.service()
+				.onRun(this::handleRun)
+				.onSuccess(this::onSuccessRun)
+				.onError(this::handleError)
+				.onComplete(this::handleComplete)
+				.build();
+
+		new Thread(() -> worker.run(1)).start();
+		while (counterComplete.get() < 1) {
+		}
+
+		assertThat(counterRun).hasPositiveValue();
+		assertThat(counterSuccess).hasPositiveValue();
+		assertThat(counterError).hasValue(0);
+	}
+
+	@Test
+	public void testFrameBudget() throws Exception {
+		WorkersBuilder.setFrameBudget(Duration.ofMillis(4));
+		WorkersBuilder.metrics().reset();
+		try {
+			for (int i = 0; i < 20; i++) {
+				UniArgWorker<Object> worker = WorkersBuilder.function(a -> doSmt())
+						.onSuccess((v) -> {
+							try {
+								Thread.sleep(2);
+							} catch (InterruptedException e) {
+							}
+							this.handleSuccess(v);
+						})
+						.onComplete(this::handleComplete)
+						.build();
+				worker.run(i);
+			}
+			while (counterComplete.get() < 20) {
+			}
+		} finally {
+			WorkersBuilder.setFrameBudget(null);
+		}
+
+		assertThat(counterSuccess).hasValue(20);
+		assertThat(WorkersBuilder.metrics().getDeferredDrains()).isPositive();
+	}
+
+	@Test
+	public void testDebounce() throws Exception {
+		AtomicInteger lastArg = new AtomicInteger();
+		UniArgWorker<Integer> worker = WorkersBuilder.function((Integer a) -> {
+			doSmt();
+			return a;
+		})
+				.debounce(Duration.ofMillis(50))
+				.onSuccess(lastArg::set)
+				.onComplete(this::handleComplete)
+				.build();
+
+		for (int i = 1; i <= 10; i++) {
+			worker.run(i);
+		}
+		while (counterComplete.get() < 1) {
+		}
+		Thread.sleep(100);
+
+		assertThat(counterDo).hasValue(1);
+		assertThat(lastArg).hasValue(10);
+	}
+
+	@Test
+	public void testThrottle() throws Exception {
+		AtomicInteger lastArg = new AtomicInteger();
+		UniArgWorker<Integer> worker = WorkersBuilder.function((Integer a) -> {
+			doSmt();
+			return a;
+		})
+				.throttle(Duration.ofMillis(100))
+				.onSuccess(lastArg::set)
+				.onComplete(this::handleComplete)
+				.build();
+
+		for (int i = 1; i <= 10; i++) {
+			worker.run(i);
+		}
+		while (counterDo.get() < 2) {
+		}
+		Thread.sleep(250);
+
+		assertThat(counterDo).hasValue(2);
+		assertThat(lastArg).hasValue(10);
+	}
+
+	@Test
+	public void testConflate() throws Exception {
+		assertConflated(WorkersBuilder.function(this::sleepAndGet).conflate());
+	}
+
+	@Test
+	public void testConflateCompletableFuture() throws Exception {
+		assertConflated(WorkersBuilder.function(this::sleepAndGet).completableFuture().conflate());
+	}
+
+	@Test
+	public void testConflateFxService() throws Exception {
+		assertConflated(WorkersBuilder.function(this::sleepAndGet).service().conflate());
+	}
+
+	private Integer sleepAndGet(Integer a) {
+		doSmt();
+		try {
+			Thread.sleep(50);
+		} catch (InterruptedException e) {
+			counterError.incrementAndGet();
+		}
+		return a;
+	}
+
+	private void assertConflated(WorkersBuilder.FunctionWorkerBuilder<Integer, Integer> builder) throws Exception {
+		AtomicInteger lastArg = new AtomicInteger();
+		UniArgWorker<Integer> worker = builder
+				.onSuccess(lastArg::set)
+				.onError(this::handleError)
+				.onComplete(this::handleComplete)
+				.build();
+
+		for (int i = 1; i <= 10; i++) {
+			worker.run(i);
+		}
+		while (counterComplete.get() < 2) {
+		}
+		Thread.sleep(100);
+
+		assertThat(counterDo).hasValue(2);
+		assertThat(counterComplete).hasValue(2);
+		assertThat(counterError).hasValue(0);
+		assertThat(lastArg).hasValue(10);
+	}
+
+	@Test
+	public void testStaleResultSuppressed() throws Exception {
+		assertStaleResultSuppressed(WorkersBuilder.function(this::sleepUninterruptibly));
+	}
+
+	@Test
+	public void testStaleResultSuppressedCompletableFuture() throws Exception {
+		assertStaleResultSuppressed(WorkersBuilder.function(this::sleepUninterruptibly).completableFuture());
+	}
+
+	private static void pause(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Integer sleepUninterruptibly(Integer a) {
+		doSmt();
+		long end = System.currentTimeMillis() + 50;
+		while (System.currentTimeMillis() < end) {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				// keep going, like a blocking driver call would
+			}
+		}
+		return a;
+	}
+
+	private void assertStaleResultSuppressed(WorkersBuilder.FunctionWorkerBuilder<Integer, Integer> builder)
+			throws Exception {
+		WorkersBuilder.metrics().reset();
+		AtomicInteger lastArg = new AtomicInteger();
+		UniArgWorker<Integer> worker = builder
+				.onSuccess((Integer a) -> {
+					lastArg.set(a);
+					counterSuccess.incrementAndGet();
+				})
+				.onComplete(this::handleComplete)
+				.build();
+
+		worker.run(1);
+		while (counterDo.get() < 1) {
+		}
+		worker.run(2);
+		while (counterComplete.get() < 2) {
+		}
+		Thread.sleep(100);
+
+		assertThat(counterDo).hasValue(2);
+		assertThat(counterSuccess).hasValue(1);
+		assertThat(counterComplete).hasValue(2);
+		assertThat(lastArg).hasValue(2);
+		assertThat(WorkersBuilder.metrics().getSuppressedResults()).isEqualTo(1);
+	}
+
+	@Test
+	public void testExecutorProvider() throws Exception {
+		WorkersBuilder.setExecutorProvider(ExecutorProviders.workStealing(2));
+		try {
+			AtomicReference<Thread> thread = new AtomicReference<>();
+			ZeroArgWorker worker = WorkersBuilder.supplier(() -> {
+				thread.set(Thread.currentThread());
+				return doSmt();
+			})
+					.completableFuture()
+					.onComplete(this::handleComplete)
+					.build();
+
+			worker.run();
+			while (counterComplete.get() < 1) {
+			}
+			assertThat(thread.get().isDaemon()).isTrue();
+			assertThat(thread.get().getName()).startsWith("fx-workers");
+
+			WorkersBuilder.shutdown(Duration.ofSeconds(1));
+			worker.run();
+			while (counterComplete.get() < 2) {
+			}
+			assertThat(counterDo).hasValue(2);
+		} finally {
+			WorkersBuilder.setExecutorProvider(null);
+		}
+	}
+
+	@Test
+	public void testLanes() throws Exception {
+		WorkersBuilder.defineLane("test", 1);
+		WorkersBuilder.metrics().reset();
+		AtomicReference<String> cpuThread = new AtomicReference<>();
+		AtomicReference<String> ioThread = new AtomicReference<>();
+		AtomicReference<String> testThread = new AtomicReference<>();
+
+		WorkersBuilder.supplier(() -> cpuThread.getAndSet(Thread.currentThread().getName()))
+				.cpu()
+				.onComplete(this::handleComplete)
+				.build()
+				.run();
+		WorkersBuilder.supplier(() -> ioThread.getAndSet(Thread.currentThread().getName()))
+				.io()
+				.service()
+				.onComplete(this::handleComplete)
+				.build()
+				.run();
+		ZeroArgWorker testWorker = WorkersBuilder.supplier(() -> testThread.getAndSet(Thread.currentThread().getName()))
+				.lane("test")
+				.completableFuture()
+				.onComplete(this::handleComplete)
+				.build();
+		testWorker.run();
+		while (counterComplete.get() < 3) {
+		}
+
+		assertThat(cpuThread.get()).startsWith("fx-workers-cpu");
+		assertThat(ioThread.get()).startsWith("fx-workers-io");
+		assertThat(testThread.get()).startsWith("fx-workers-test");
+		LaneStats stats = WorkersBuilder.metrics().getLaneStats("test");
+		assertThat(stats.getThreads()).isEqualTo(1);
+		assertThat(stats.getSubmitted()).isEqualTo(1);
+		assertThat(WorkersBuilder.metrics().getLaneStats()).containsKeys(WorkersBuilder.CPU_LANE,
+				WorkersBuilder.IO_LANE, "test");
+
+		// workers built before a redefinition run on the new pool
+		WorkersBuilder.defineLane("test", 2);
+		testWorker.run();
+		while (counterComplete.get() < 4) {
+		}
+		stats = WorkersBuilder.metrics().getLaneStats("test");
+		assertThat(stats.getThreads()).isEqualTo(2);
+		assertThat(stats.getSubmitted()).isEqualTo(1);
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		WorkersBuilder.metrics().reset();
+		AtomicInteger lastResult = new AtomicInteger();
+		UniArgWorker<Integer> worker = WorkersBuilder.function((Integer a) -> {
+			doSmt();
+			return a * 10;
+		})
+				.cache(10, Duration.ofMinutes(1))
+				.onRun(this::handleRun)
+				.onSuccess((Integer r) -> {
+					lastResult.set(r);
+					counterSuccess.incrementAndGet();
+				})
+				.onComplete(this::handleComplete)
+				.build();
+
+		int[] args = { 1, 2, 1, 2 };
+		for (int i = 0; i < args.length; i++) {
+			worker.run(args[i]);
+			while (counterComplete.get() < i + 1) {
+			}
+		}
+
+		assertThat(counterDo).hasValue(2);
+		assertThat(counterRun).hasValue(4);
+		assertThat(counterSuccess).hasValue(4);
+		assertThat(lastResult).hasValue(20);
+		assertThat(WorkersBuilder.metrics().getCacheHits()).isEqualTo(2);
+		assertThat(WorkersBuilder.metrics().getCacheMisses()).isEqualTo(2);
+
+		assertThatThrownBy(() -> WorkersBuilder.biFunction((Integer a, Integer b) -> a + b).cache(10, Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> WorkersBuilder.function((Integer a) -> a).cache(10, null))
+				.isInstanceOf(NullPointerException.class);
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws Exception {
+		WorkersBuilder.metrics().reset();
+		AtomicReference<List<Integer>> data = new AtomicReference<>(Arrays.asList(1, 2));
+		AtomicReference<List<Integer>> shown = new AtomicReference<>();
+
+		// one builder, a worker per screen opening
+		WorkersBuilder.SupplierWorkerBuilder<List<Integer>> builder = WorkersBuilder.listSupplier(() -> {
+			doSmt();
+			return data.get();
+		})
+				.staleWhileRevalidate("testStaleWhileRevalidate", Duration.ofMinutes(1))
+				.onRun(this::handleRun)
+				.onSuccess((List<Integer> r) -> {
+					shown.set(r);
+					counterSuccess.incrementAndGet();
+				})
+				.onComplete(this::handleComplete);
+		for (int i = 0; i < 3; i++) {
+			if (i == 2) {
+				data.set(Arrays.asList(1, 2, 3));
+			}
+			ZeroArgWorker worker = builder.build();
+			worker.run();
+			while (counterComplete.get() < i + 1) {
+			}
+		}
+
+		assertThat(counterDo).hasValue(3);
+		// fresh, stale (fresh one equal), stale + fresh
+		assertThat(counterSuccess).hasValue(4);
+		assertThat(shown.get()).containsExactly(1, 2, 3);
+		assertThat(WorkersBuilder.metrics().getCacheHits()).isZero();
+		assertThat(WorkersBuilder.metrics().getCacheMisses()).isZero();
+	}
+
+	@Test
+	public void testSingleFlight() throws Exception {
+		WorkersBuilder.metrics().reset();
+		CountDownLatch release = new CountDownLatch(1);
+		Function<Integer, Integer> load = a -> {
+			doSmt();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return a * 10;
+		};
+		AtomicInteger result1 = new AtomicInteger();
+		AtomicInteger result2 = new AtomicInteger();
+		UniArgWorker<Integer> worker1 = WorkersBuilder.function(load)
+				.singleFlight()
+				.io()
+				.onRun(this::handleRun)
+				.onSuccess((Integer r) -> result1.set(r))
+				.onComplete(this::handleComplete)
+				.build();
+		UniArgWorker<Integer> worker2 = WorkersBuilder.function(load)
+				.singleFlight()
+				.io()
+				.completableFuture()
+				.onRun(this::handleRun)
+				.onSuccess((Integer r) -> result2.set(r))
+				.onComplete(this::handleComplete)
+				.build();
+
+		worker1.run(1);
+		worker2.run(1);
+		while (counterRun.get() < 2) {
+		}
+		// supersedes the subscription of worker1 only
+		worker1.run(2);
+		while (counterDo.get() < 2) {
+		}
+		release.countDown();
+		while (counterComplete.get() < 3) {
+		}
+
+		assertThat(counterDo).hasValue(2);
+		assertThat(result1).hasValue(20);
+		assertThat(result2).hasValue(10);
+		assertThat(WorkersBuilder.metrics().getSharedRuns()).isEqualTo(1);
+	}
+
+	@Test
+	public void testSingleFlightCancellablePipeline() throws Exception {
+		WorkersBuilder.metrics().reset();
+		CountDownLatch release = new CountDownLatch(1);
+		BiFunction<Integer, CancellationToken, Integer> load = (a, token) -> {
+			doSmt();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return a * 10;
+		};
+		Function<Integer, Integer> inc = r -> r + 1;
+		AtomicInteger result1 = new AtomicInteger();
+		AtomicInteger result2 = new AtomicInteger();
+		UniArgWorker<Integer> worker1 = WorkersBuilder.cancellableFunction(load)
+				.then(inc)
+				.singleFlight()
+				.onRun(this::handleRun)
+				.onSuccess((Integer r) -> result1.set(r))
+				.onComplete(this::handleComplete)
+				.build();
+		UniArgWorker<Integer> worker2 = WorkersBuilder.cancellableFunction(load)
+				.then(inc)
+				.singleFlight()
+				.onRun(this::handleRun)
+				.onSuccess((Integer r) -> result2.set(r))
+				.onComplete(this::handleComplete)
+				.build();
+
+		worker1.run(1);
+		worker2.run(1);
+		while (counterRun.get() < 2) {
+		}
+		release.countDown();
+		while (counterComplete.get() < 2) {
+		}
+
+		assertThat(counterDo).hasValue(1);
+		assertThat(result1).hasValue(11);
+		assertThat(result2).hasValue(11);
+		assertThat(WorkersBuilder.metrics().getSharedRuns()).isEqualTo(1);
+	}
+
+	@Test
+	public void testBatchFunction() throws Exception {
+		WorkersBuilder.metrics().reset();
+		Map<Integer, Integer> results = new ConcurrentHashMap<>();
+		UniArgWorker<Integer> worker = WorkersBuilder.batchFunction((List<Integer> ids) -> {
+			doSmt();
+			return ids.stream().collect(Collectors.toMap(id -> id, id -> id * 10));
+		})
+				.window(Duration.ofMillis(100))
+				.maxBatchSize(3)
+				.onRun(this::handleRun)
+				.onSuccess((Integer id, Integer r) -> results.put(id, r))
+				.onSuccess(this::onSuccessRun)
+				.onComplete(this::handleComplete)
+				.build();
+
+		for (int i = 1; i <= 5; i++) {
+			worker.run(i);
+		}
+		worker.run(5);
+		while (counterComplete.get() < 2) {
+		}
+
+		assertThat(counterDo).hasValue(2);
+		assertThat(counterRun).hasValue(2);
+		assertThat(results).hasSize(5).containsEntry(5, 50);
+		assertThat(counterSuccess).hasValue(5);
+		assertThat(WorkersBuilder.metrics().getBatches()).isEqualTo(2);
+		assertThat(WorkersBuilder.metrics().getBatchedRuns()).isEqualTo(5);
+
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction((List<Integer> ids) -> null).window(null))
+				.isInstanceOf(NullPointerException.class);
+	}
+
+	@Test
+	public void testUnsupportedOptions() throws Exception {
+		Function<Integer, Integer> load = a -> a;
+		assertThatThrownBy(() -> WorkersBuilder.function(load).service().cache(10, Duration.ofSeconds(1)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.function(load).cache(10, Duration.ofSeconds(1)).service())
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.function(load).service().singleFlight())
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.function(load).service().singleFlight("key"))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.function(load).singleFlight().service())
+				.isInstanceOf(IllegalStateException.class);
+
+		Function<List<Integer>, Map<Integer, Integer>> batch = ids -> null;
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction(batch).service())
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction(batch).debounce(Duration.ofMillis(10)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction(batch).throttle(Duration.ofMillis(10)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction(batch).conflate())
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction(batch).singleFlight())
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction(batch).timeout(Duration.ofMillis(10)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> WorkersBuilder.batchFunction(batch).retry(2, Duration.ofMillis(10)))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testStreamBackpressure() throws Exception {
+		ObservableList<Integer> list = FXCollections.observableArrayList();
+		AtomicInteger pushed = new AtomicInteger();
+		AtomicInteger stopped = new AtomicInteger();
+		UniArgWorker<Integer> worker = WorkersBuilder.streamFunction((Integer n, ListSink<Integer> sink) -> {
+			try {
+				for (int i = 0; i < n; i++) {
+					sink.push(i);
+					pushed.incrementAndGet();
+				}
+			} catch (CancellationException e) {
+				stopped.incrementAndGet();
+				throw e;
+			}
+		})
+				.chunkSize(5)
+				.bufferSize(10)
+				.appendTo(list)
+				.onComplete(this::handleComplete)
+				.build();
+
+		// the producer waits for the busy FX thread once the buffer is full
+		CountDownLatch fx = blockFxThread();
+		worker.run(100);
+		while (pushed.get() < 10) {
+		}
+		pause(100);
+		assertThat(pushed).hasValue(10);
+		fx.countDown();
+		while (counterComplete.get() < 1) {
+		}
+		assertThat(pushed).hasValue(100);
+		assertThat(WaitForAsyncUtils.asyncFx(list::size).get()).isEqualTo(100);
+
+		// a waiting producer is stopped by the next run
+		pushed.set(0);
+		fx = blockFxThread();
+		worker.run(100);
+		while (pushed.get() < 10) {
+		}
+		worker.run(0);
+		while (stopped.get() < 1) {
+		}
+		fx.countDown();
+		while (counterComplete.get() < 3) {
+		}
+		assertThat(pushed).hasValue(10);
+		assertThat(WaitForAsyncUtils.asyncFx(list::size).get()).isZero();
+
+		assertThatThrownBy(() -> WorkersBuilder.streamFunction((Integer n, ListSink<Integer> sink) -> {
+		}).bufferSize(0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * @return latch that releases the FX Application thread
+	 */
+	private CountDownLatch blockFxThread() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch blocked = new CountDownLatch(1);
+		Platform.runLater(() -> {
+			blocked.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		blocked.await();
+		return release;
+	}
+
+	@Test
+	public void testStream() throws Exception {
+		ObservableList<Integer> list = FXCollections.observableArrayList(-1);
+		AtomicInteger sizeOnSuccess = new AtomicInteger();
+		AtomicInteger stopped = new AtomicInteger();
+		UniArgWorker<Integer> worker = WorkersBuilder.streamFunction((Integer n, ListSink<Integer> sink) -> {
+			doSmt();
+			try {
+				for (int i = 0; i < n; i++) {
+					sink.push(i);
+					if (n > 10000) {
+						pause(1);
+					}
+				}
+			} catch (CancellationException e) {
+				stopped.incrementAndGet();
+				throw e;
+			}
+		})
+				.io()
+				.chunkSize(100)
+				.appendTo(list)
+				.onRun(this::handleRun)
+				.onSuccess(() -> sizeOnSuccess.set(list.size()))
+				.onComplete(this::handleComplete)
+				.build();
+
+		// endless stream, stopped by the next run
+		worker.run(Integer.MAX_VALUE);
+		while (counterDo.get() < 1) {
+		}
+		pause(50);
+		worker.run(2500);
+		while (counterComplete.get() < 2 || stopped.get() < 1) {
+		}
+
+		assertThat(sizeOnSuccess).hasValue(2500);
+		assertThat(list).hasSize(2500);
+		for (int i = 0; i < 2500; i++) {
+			assertThat(list.get(i)).isEqualTo(i);
+		}
+
+		// no interrupts and a single thread: the run's token stops the endless stream
+		WorkersBuilder.defineLane("testStream", 1);
+		ObservableList<Integer> single = FXCollections.observableArrayList();
+		UniArgWorker<Integer> uninterrupted = WorkersBuilder.streamFunction((Integer n, ListSink<Integer> sink) -> {
+			for (int i = 0; i < n; i++) {
+				sink.push(i);
+				if (n > 10000) {
+					pause(1);
+				}
+			}
+		})
+				.lane("testStream")
+				.completableFuture()
+				.chunkSize(100)
+				.appendTo(single)
+				.onComplete(this::handleComplete)
+				.build();
+		uninterrupted.run(Integer.MAX_VALUE);
+		pause(50);
+		uninterrupted.run(10);
+		while (counterComplete.get() < 4) {
+		}
+		assertThat(single).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+	}
+
+	@Test
+	public void testPatchInto() throws Exception {
+		WorkersBuilder.metrics().reset();
+		ObservableList<String> list = FXCollections.observableArrayList();
+		AtomicInteger changes = new AtomicInteger();
+		list.addListener((ListChangeListener<String>) c -> {
+			while (c.next()) {
+				changes.incrementAndGet();
+			}
+		});
+		UniArgWorker<List<String>> worker = WorkersBuilder.listFunction((List<String> rows) -> rows)
+				// key: the part before ':'
+				.patchInto(list, row -> row.split(":")[0])
+				.onComplete(this::handleComplete)
+				.build();
+
+		List<String> rows = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			rows.add(i + ":a");
+		}
+		worker.run(new ArrayList<>(rows));
+		while (counterComplete.get() < 1) {
+		}
+		changes.set(0);
+
+		rows.remove(10);
+		rows.add(500, "x:a");
+		rows.set(900, "900:b");
+		worker.run(new ArrayList<>(rows));
+		while (counterComplete.get() < 2) {
+		}
+
+		assertThat(list).isEqualTo(rows);
+		assertThat(changes).hasValue(3);
+		assertThat(WorkersBuilder.metrics().getPatchedUpdates()).isEqualTo(1);
+
+		assertThatThrownBy(() -> WorkersBuilder.listSupplier(() -> rows)
+				.patchInto(list, row -> row)
+				.patchInto(list, row -> row))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testListPatch() throws Exception {
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			List<Integer> from = new ArrayList<>();
+			for (int i = random.nextInt(50); i > 0; i--) {
+				from.add(random.nextInt(30));
+			}
+			List<Integer> to = new ArrayList<>(from);
+			for (int i = random.nextInt(10); i > 0; i--) {
+				int op = random.nextInt(3);
+				if (op == 0 || to.isEmpty()) {
+					to.add(random.nextInt(to.size() + 1), random.nextInt(30));
+				} else if (op == 1) {
+					to.remove(random.nextInt(to.size()));
+				} else {
+					to.set(random.nextInt(to.size()), random.nextInt(30));
+				}
+			}
+			ListPatch<Integer> patch = ListPatch.diff(from, to, (Integer e) -> e % 10, 1000);
+			ObservableList<Integer> target = FXCollections.observableArrayList(from);
+			patch.applyTo(target);
+			assertThat(target).isEqualTo(to);
+		}
+	}
+
+	@Test
+	public void testPagedList() throws Exception {
+		List<Integer> data = new ArrayList<>();
+		for (int i = 0; i < 100000; i++) {
+			data.add(i);
+		}
+		AtomicInteger loads = new AtomicInteger();
+		PagedList<Integer> list = WorkersBuilder.pagedList(new PageSource<Integer>() {
+
+			@Override
+			public int size() {
+				return data.size();
+			}
+
+			@Override
+			public List<Integer> load(int offset, int limit) {
+				loads.incrementAndGet();
+				return data.subList(offset, Math.min(offset + limit, data.size()));
+			}
+		})
+				.pageSize(100)
+				.maxPages(5)
+				.prefetch(1)
+				.build();
+
+		while (WaitForAsyncUtils.asyncFx(list::size).get() < data.size()) {
+		}
+		AtomicInteger changes = new AtomicInteger();
+		AtomicInteger evictions = new AtomicInteger();
+		WaitForAsyncUtils.asyncFx(() -> list.addListener((ListChangeListener<Integer>) c -> {
+			changes.incrementAndGet();
+			while (c.next()) {
+				// like a selection model: reading the new rows must not load pages
+				c.getAddedSubList().forEach(row -> {
+				});
+				if (c.getRemoved().stream().anyMatch(row -> row != null)) {
+					evictions.incrementAndGet();
+				}
+			}
+		})).get();
+
+		// first read misses and loads pages 50 and 49, 51 in one batch
+		assertThat(WaitForAsyncUtils.asyncFx(() -> list.get(5000)).get()).isNull();
+		while (WaitForAsyncUtils.asyncFx(() -> list.get(5000)).get() == null) {
+		}
+		pause(50);
+		assertThat(loads).hasValue(1);
+		assertThat(changes).hasValue(3);
+		assertThat(WaitForAsyncUtils.asyncFx(() -> list.get(5199)).get()).isEqualTo(5199);
+		assertThat(WaitForAsyncUtils.asyncFx(() -> list.get(4900)).get()).isEqualTo(4900);
+
+		// scrolling far away evicts the least recently used pages
+		for (int page = 900; page < 905; page++) {
+			int index = page * 100;
+			while (WaitForAsyncUtils.asyncFx(() -> list.get(index)).get() == null) {
+			}
+		}
+		assertThat(WaitForAsyncUtils.asyncFx(list::getLoadedPages).get()).isEqualTo(5);
+		assertThat(evictions).hasPositiveValue();
+		assertThat(WaitForAsyncUtils.asyncFx(list::getHitRate).get()).isBetween(0.0, 1.0).isNotEqualTo(0.0);
+
+		assertThatThrownBy(() -> WorkersBuilder.pagedList((PageSource<Integer>) null).prefetch(-1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testParallelMap() throws Exception {
+		List<Integer> input = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			input.add(i);
+		}
+		AtomicInteger mapped = new AtomicInteger();
+		AtomicReference<List<Integer>> result = new AtomicReference<>();
+		AtomicReference<Double> progress = new AtomicReference<>(0.0);
+		UniArgWorker<Collection<Integer>> worker = WorkersBuilder.parallelMap((Integer i) -> {
+			mapped.incrementAndGet();
+			pause(1);
+			return i * 2;
+		})
+				.io()
+				.onRun(this::handleRun)
+				.onProgress(p -> progress.set(Math.max(progress.get(), p)))
+				.onSuccess((List<Integer> r) -> result.set(r))
+				.onComplete(this::handleComplete)
+				.build();
+
+		// superseded: its outstanding subtasks stop
+		worker.run(input);
+		while (mapped.get() < 10) {
+		}
+		worker.run(input.subList(0, 100));
+		while (counterComplete.get() < 2) {
+		}
+		int mappedAfter = mapped.get();
+		pause(100);
+
+		assertThat(mapped.get()).isEqualTo(mappedAfter).isLessThan(2000);
+		assertThat(result.get()).hasSize(100);
+		for (int i = 0; i < 100; i++) {
+			assertThat(result.get().get(i)).isEqualTo(i * 2);
+		}
+		assertThat(progress.get()).isGreaterThan(0.0).isLessThanOrEqualTo(1.0);
+
+		// completableFuture() doesn't interrupt on timeout: the run's token stops the subtasks
+		mapped.set(0);
+		UniArgWorker<Collection<Integer>> timed = WorkersBuilder.parallelMap((Integer i) -> {
+			mapped.incrementAndGet();
+			pause(1);
+			return i;
+		})
+				.completableFuture()
+				.io()
+				.timeout(Duration.ofMillis(50))
+				.build();
+		assertThatThrownBy(() -> timed.submit(input).toCompletableFuture().get(5, TimeUnit.SECONDS))
+				.hasCauseInstanceOf(TimeoutException.class);
+		pause(100);
+		int mappedAfterTimeout = mapped.get();
+		pause(100);
+
+		assertThat(mapped.get()).isEqualTo(mappedAfterTimeout).isLessThan(2000);
+	}
+
+	@Test
+	public void testPipeline() throws Exception {
+		List<String> threads = new CopyOnWriteArrayList<>();
+		AtomicReference<String> result = new AtomicReference<>();
+		UniArgWorker<Integer> worker = WorkersBuilder.function((Integer a) -> {
+			threads.add(Thread.currentThread().getName());
+			return a * 10;
+		})
+				.io()
+				.then(a -> {
+					threads.add(Thread.currentThread().getName());
+					return a + 1;
+				})
+				.thenAsync(a -> {
+					threads.add(Thread.currentThread().getName());
+					if (a < 0) {
+						throw new IllegalArgumentException();
+					}
+					return "r" + a;
+				}, WorkersBuilder.CPU_LANE)
+				.onRun(this::handleRun)
+				.onSuccess((String r) -> result.set(r))
+				.onError(this::handleError)
+				.onComplete(this::handleComplete)
+				.build();
+
+		worker.run(4);
+		while (counterComplete.get() < 1) {
+		}
+		assertThat(result).hasValue("r41");
+		assertThat(threads).hasSize(3);
+		assertThat(threads.get(0)).startsWith("fx-workers-io").isEqualTo(threads.get(1));
+		assertThat(threads.get(2)).startsWith("fx-workers-cpu");
+
+		worker.run(-4);
+		while (counterComplete.get() < 2) {
+		}
+		assertThat(counterError).hasValue(1);
+		assertThat(counterRun).hasValue(2);
+
+		// settings of the final result go after the last stage
+		assertThatThrownBy(() -> WorkersBuilder.supplier(this::doSmt)
+				.staleWhileRevalidate("testPipeline", Duration.ofMinutes(1))
+				.then(i -> i * 2))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testPipelineCancelsActiveStage() throws Exception {
+		WorkersBuilder.metrics().reset();
+		AtomicInteger interrupted = new AtomicInteger();
+		AtomicReference<Integer> result = new AtomicReference<>();
+		UniArgWorker<Integer> worker = WorkersBuilder.function((Integer a) -> a)
+				.thenAsync(a -> {
+					if (a == 1) {
+						try {
+							Thread.sleep(10000);
+						} catch (InterruptedException e) {
+							interrupted.incrementAndGet();
+						}
+					}
+					return a;
+				}, WorkersBuilder.IO_LANE)
+				.onRun(this::handleRun)
+				.onSuccess((Integer r) -> result.set(r))
+				.onComplete(this::handleComplete)
+				.build();
+
+		worker.run(1);
+		while (counterRun.get() < 1) {
+		}
+		pause(100);
+		worker.run(2);
+		while (counterComplete.get() < 2) {
+		}
+
+		assertThat(result).hasValue(2);
+		assertThat(interrupted).hasValue(1);
+		assertThat(WorkersBuilder.metrics().getSuppressedResults()).isEqualTo(1);
+	}
+
+	@Test
+	public void testAsyncFunction() throws Exception {
+		WorkersBuilder.defineLane("testAsyncFunction", 1);
+		List<CompletableFuture<Integer>> pending = new CopyOnWriteArrayList<>();
+		List<CompletableFuture<Integer>> returned = new CopyOnWriteArrayList<>();
+		AtomicInteger sum = new AtomicInteger();
+		List<UniArgWorker<Integer>> workers = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			workers.add(WorkersBuilder.asyncFunction((Integer a) -> {
+				CompletableFuture<Integer> f = new CompletableFuture<>();
+				pending.add(f);
+				CompletableFuture<Integer> product = f.thenApply(r -> r * a);
+				returned.add(product);
+				return product;
+			})
+					.lane("testAsyncFunction")
+					.onRun(this::handleRun)
+					.onSuccess((Integer r) -> sum.addAndGet(r))
+					.onComplete(this::handleComplete)
+					.build());
+		}
+
+		// one lane thread, three bodies waiting at once
+		for (UniArgWorker<Integer> worker : workers) {
+			worker.run(2);
+		}
+		while (pending.size() < 3) {
+		}
+		// supersedes the first run: its future is cancelled
+		workers.get(0).run(3);
+		while (pending.size() < 4) {
+		}
+		assertThat(returned.get(0).isCancelled()).isTrue();
+
+		pending.forEach(f -> f.complete(10));
+		while (counterComplete.get() < 4) {
+		}
+		assertThat(sum).hasValue(20 + 20 + 30);
+	}
+
+	@Test
+	public void testSubmit() throws Exception {
+		assertSubmitted(b -> b);
+		assertSubmitted(b -> b.completableFuture());
+		assertSubmitted(b -> b.service());
+
+		// typed by the result, no casts
+		SupplierWorker<String> name = WorkersBuilder.supplier(() -> "a").io().build();
+		BiFunctionWorker<Integer, Integer, Integer> sum = WorkersBuilder.biFunction((Integer a, Integer b) -> a + b)
+				.io()
+				.build();
+		String combined = name.submit()
+				.thenCombine(sum.submit(1, 2), (n, s) -> n + s)
+				.toCompletableFuture()
+				.get(5, TimeUnit.SECONDS);
+		assertThat(combined).isEqualTo("a3");
+
+		// workers implemented outside the library keep compiling
+		UniArgWorker<Integer> external = new UniArgWorker<Integer>() {
+
+			@Override
+			public void run(Integer t) {
+			}
+
+			@Override
+			public void setExecutor(Executor executor) {
+			}
+		};
+		assertThatThrownBy(() -> external.submit(1)).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	private void assertSubmitted(
+			Function<WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>, WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>> impl)
+			throws Exception {
+		CountDownLatch submitted = new CountDownLatch(1);
+		AtomicReference<CompletableFuture<Integer>> result = new AtomicReference<>();
+		AtomicReference<Boolean> doneBeforeCallback = new AtomicReference<>();
+		FunctionWorker<Integer, Integer> worker = impl.apply(WorkersBuilder.function((Integer a) -> {
+			try {
+				submitted.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return a * 2;
+		}))
+				.io()
+				.onSuccess(r -> doneBeforeCallback.set(result.get().isDone()))
+				.build();
+
+		result.set(worker.submit(21).toCompletableFuture());
+		submitted.countDown();
+
+		int doubled = result.get().get(5, TimeUnit.SECONDS);
+		assertThat(doubled).isEqualTo(42);
+		while (doneBeforeCallback.get() == null) {
+		}
+		assertThat(doneBeforeCallback.get()).isTrue();
+	}
+
+	@Test
+	public void testSubmitCancelled() throws Exception {
+		UniArgWorker<Integer> superseding = WorkersBuilder.function(this::sleepAndGet)
+				.io()
+				.build();
+		CompletableFuture<?> first = superseding.submit(1).toCompletableFuture();
+		CompletableFuture<?> second = superseding.submit(2).toCompletableFuture();
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+		assertThat(first.isCancelled()).isTrue();
+
+		CountDownLatch started = new CountDownLatch(1);
+		UniArgWorker<Integer> cancelled = WorkersBuilder.function((Integer a) -> {
+			started.countDown();
+			try {
+				Thread.sleep(a);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return a;
+		})
+				.service()
+				.io()
+				.build();
+		CompletableFuture<?> interrupted = cancelled.submit(5000).toCompletableFuture();
+		started.await(5, TimeUnit.SECONDS);
+		Platform.runLater(() -> cancelled.asService().cancel());
+		assertThatThrownBy(() -> interrupted.get(5, TimeUnit.SECONDS)).isInstanceOf(CancellationException.class);
+
+		UniArgWorker<Integer> debounced = WorkersBuilder.function((Integer a) -> a)
+				.debounce(Duration.ofMillis(50))
+				.build();
+		List<CompletableFuture<?>> runs = new ArrayList<>();
+		for (int i = 1; i <= 3; i++) {
+			runs.add(debounced.submit(i).toCompletableFuture());
+		}
+		assertThat(runs.get(2).get(5, TimeUnit.SECONDS)).isEqualTo(3);
+		assertThat(runs.get(0).isCancelled()).isTrue();
+		assertThat(runs.get(1).isCancelled()).isTrue();
+	}
+
+	@Test
+	public void testSubmitBatch() throws Exception {
+		UniArgWorker<Integer> worker = WorkersBuilder.batchFunction((List<Integer> keys) -> keys.stream()
+				.filter(k -> k > 0)
+				.collect(Collectors.toMap(Function.identity(), k -> "#" + k)))
+				.onSuccess((Integer k, String v) -> {
+				})
+				.build();
+
+		CompletableFuture<?> one = worker.submit(1).toCompletableFuture();
+		CompletableFuture<?> two = worker.submit(2).toCompletableFuture();
+		CompletableFuture<?> missing = worker.submit(-1).toCompletableFuture();
+
+		assertThat(one.get(5, TimeUnit.SECONDS)).isEqualTo("#1");
+		assertThat(two.get(5, TimeUnit.SECONDS)).isEqualTo("#2");
+		assertThat(missing.get(5, TimeUnit.SECONDS)).isNull();
+	}
+
+	@Test
+	public void testCancellationToken() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicInteger hooks = new AtomicInteger();
+		AtomicInteger stopped = new AtomicInteger();
+		AtomicInteger lastArg = new AtomicInteger();
+		// completableFuture() can't interrupt the body: only the token stops it
+		UniArgWorker<Integer> worker = WorkersBuilder.cancellableFunction((Integer a, CancellationToken token) -> {
+			if (a > 1) {
+				return a;
+			}
+			token.onCancel(hooks::incrementAndGet);
+			started.countDown();
+			while (!token.isCancelled()) {
+			}
+			stopped.incrementAndGet();
+			token.throwIfCancelled();
+			return a;
+		})
+				.completableFuture()
+				.io()
+				.onSuccess(lastArg::set)
+				.onError(this::handleError)
+				.onComplete(this::handleComplete)
+				.build();
+
+		worker.run(1);
+		started.await();
+		worker.run(2);
+		while (counterComplete.get() < 2) {
+		}
+		// the first body stops on the tripped token, possibly after onComplete
+		while (stopped.get() < 1) {
+		}
+		// hooks run in their own pool
+		while (hooks.get() < 1) {
+		}
+		pause(50);
+
+		assertThat(hooks).hasValue(1);
+		assertThat(lastArg).hasValue(2);
+		assertThat(counterError).hasValue(0);
+
+		AtomicReference<String> hookThread = new AtomicReference<>();
+		BiArgWorker<Integer, Integer> biFunction = WorkersBuilder
+				.cancellableBiFunction((Integer a, Integer b, CancellationToken token) -> {
+					token.onCancel(() -> hookThread.set(Thread.currentThread().getName()));
+					while (!token.isCancelled()) {
+					}
+					stopped.incrementAndGet();
+					return a + b;
+				})
+				.completableFuture()
+				.io()
+				.timeout(Duration.ofMillis(50))
+				.build();
+		BiArgWorker<Integer, Integer> biConsumer = WorkersBuilder
+				.cancellableBiConsumer((Integer a, Integer b, CancellationToken token) -> {
+					while (!token.isCancelled()) {
+					}
+					stopped.incrementAndGet();
+				})
+				.completableFuture()
+				.io()
+				.timeout(Duration.ofMillis(50))
+				.build();
+
+		assertThatThrownBy(() -> biFunction.submit(1, 2).toCompletableFuture().get(5, TimeUnit.SECONDS))
+				.hasCauseInstanceOf(TimeoutException.class);
+		assertThatThrownBy(() -> biConsumer.submit(1, 2).toCompletableFuture().get(5, TimeUnit.SECONDS))
+				.hasCauseInstanceOf(TimeoutException.class);
+		while (stopped.get() < 3) {
+		}
+		// expired by the timer, but not run in its thread
+		while (hookThread.get() == null) {
+		}
+		assertThat(hookThread.get()).startsWith("fx-workers-cancel");
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		WorkersMetrics metrics = WorkersBuilder.metrics();
+		metrics.reset();
+		AtomicInteger stopped = new AtomicInteger();
+		// ignores interrupts, like a blocked driver call
+		BiFunction<Integer, CancellationToken, Integer> hanging = (a, token) -> {
+			while (!token.isCancelled()) {
+			}
+			stopped.incrementAndGet();
+			return a;
+		};
+		assertTimedOut(WorkersBuilder.cancellableFunction(hanging).io());
+		assertTimedOut(WorkersBuilder.cancellableFunction(hanging).io().completableFuture());
+		assertTimedOut(WorkersBuilder.cancellableFunction(hanging).io().service());
+
+		// the bodies stop on the tripped token, possibly after onComplete
+		while (stopped.get() < 3) {
+		}
+		assertThat(metrics.getTimeouts()).isEqualTo(3);
+	}
+
+	@Test
+	public void testTimeoutThrottled() throws Exception {
+		assertTimedOutThrottled(b -> b);
+		assertTimedOutThrottled(b -> b.completableFuture());
+		assertTimedOutThrottled(b -> b.service());
+	}
+
+	private void assertTimedOutThrottled(
+			Function<WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>, WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>> impl)
+			throws Exception {
+		List<Throwable> errors = new CopyOnWriteArrayList<>();
+		// the first run is quick, the delayed one hangs until its token is tripped
+		UniArgWorker<Integer> worker = impl.apply(WorkersBuilder.cancellableFunction((Integer a, CancellationToken token) -> {
+			while (a > 1 && !token.isCancelled()) {
+			}
+			return a;
+		}))
+				.throttle(Duration.ofMillis(300))
+				.timeout(Duration.ofMillis(100))
+				.onError(errors::add)
+				.build();
+
+		CompletableFuture<?> first = worker.submit(1).toCompletableFuture();
+		CompletableFuture<?> dropped = worker.submit(2).toCompletableFuture();
+		CompletableFuture<?> delayed = worker.submit(3).toCompletableFuture();
+		while (!delayed.isDone()) {
+		}
+
+		// waiting for the throttle doesn't count against the timeout
+		assertThat(first.get()).isEqualTo(1);
+		assertThat(dropped).isCancelled();
+		assertThat(delayed).isCompletedExceptionally();
+		while (errors.isEmpty()) {
+		}
+		assertThat(errors).hasSize(1).allMatch(e -> e instanceof TimeoutException);
+	}
+
+	private void assertTimedOut(WorkersBuilder.FunctionWorkerBuilder<Integer, Integer> builder) throws Exception {
+		counterComplete.set(0);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		UniArgWorker<Integer> worker = builder
+				.timeout(Duration.ofMillis(50))
+				.onSuccess(this::handleSuccess)
+				.onError(error::set)
+				.onComplete(this::handleComplete)
+				.build();
+
+		CompletableFuture<?> result = worker.submit(1).toCompletableFuture();
+		while (counterComplete.get() < 1) {
+		}
+
+		assertThat(error.get()).isInstanceOf(TimeoutException.class);
+		assertThat(result).isCompletedExceptionally();
+		assertThat(counterSuccess).hasValue(0);
+	}
+
+	@Test
+	public void testRetry() throws Exception {
+		assertRetried(b -> b);
+		assertRetried(b -> b.completableFuture());
+		assertRetried(b -> b.service());
+	}
+
+	private void assertRetried(
+			Function<WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>, WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>> impl)
+			throws Exception {
+		setUp();
+		AtomicInteger attempts = new AtomicInteger();
+		AtomicInteger lastArg = new AtomicInteger();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		// fails the first two attempts, and always for negative arguments
+		UniArgWorker<Integer> worker = impl.apply(WorkersBuilder.function((Integer a) -> {
+			if (attempts.incrementAndGet() <= 2 || a < 0) {
+				throw new IllegalStateException("attempt " + attempts.get());
+			}
+			if (a == 0) {
+				throw new IllegalArgumentException();
+			}
+			return a;
+		}))
+				.retry(3, Duration.ofMillis(10), e -> e instanceof IllegalStateException)
+				.onRun(this::handleRun)
+				.onSuccess(lastArg::set)
+				.onError(error::set)
+				.onComplete(this::handleComplete)
+				.build();
+
+		worker.run(7);
+		while (counterComplete.get() < 1) {
+		}
+		assertThat(attempts).hasValue(3);
+		assertThat(lastArg).hasValue(7);
+		assertThat(error.get()).isNull();
+		assertThat(counterRun).hasValue(1);
+
+		attempts.set(0);
+		worker.run(-1);
+		while (counterComplete.get() < 2) {
+		}
+		assertThat(attempts).hasValue(3);
+		assertThat(error.get()).hasMessage("attempt 3");
+		assertThat(counterRun).hasValue(2);
+
+		// not retried
+		attempts.set(2);
+		worker.run(0);
+		while (counterComplete.get() < 3) {
+		}
+		assertThat(attempts).hasValue(3);
+		assertThat(error.get()).isInstanceOf(IllegalArgumentException.class);
+		assertThat(counterRun).hasValue(3);
+	}
+
+	@Test
+	public void testWorkerGroup() throws Exception {
+		WorkersBuilder.defineGroup("testWorkerGroup", 2);
+		WorkersMetrics metrics = WorkersBuilder.metrics();
+		metrics.reset();
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		for (int i = 0; i < 6; i++) {
+			UniArgWorker<Integer> worker = WorkersBuilder.consumer((Integer a) -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+			})
+					.io()
+					.group("testWorkerGroup")
+					.onSuccess(this::onSuccessRun)
+					.onComplete(this::handleComplete)
+					.build();
+			worker.run(i);
+		}
+		while (running.get() < 2) {
+		}
+		GroupStats stats = metrics.getGroupStats("testWorkerGroup");
+		assertThat(stats.getActive()).isEqualTo(2);
+		assertThat(stats.getQueueDepth()).isEqualTo(4);
+
+		release.countDown();
+		while (counterComplete.get() < 6) {
+		}
+		stats = metrics.getGroupStats("testWorkerGroup");
+		assertThat(maxRunning).hasValue(2);
+		assertThat(stats.getSubmitted()).isEqualTo(6);
+		assertThat(stats.getQueueDepth()).isEqualTo(0);
+		assertThat(stats.getMaxWait()).isGreaterThan(Duration.ZERO);
+	}
+
+	@Test
+	public void testWorkerGroupRetryBackoff() throws Exception {
+		WorkersBuilder.defineLane("testRetryBackoff", 2);
+		WorkersBuilder.defineGroup("testRetryBackoff", 1);
+		AtomicInteger attempts = new AtomicInteger();
+		AtomicInteger seen = new AtomicInteger();
+		UniArgWorker<Integer> retried = WorkersBuilder.function((Integer a) -> {
+			if (attempts.incrementAndGet() < 2) {
+				throw new IllegalStateException("Test");
+			}
+			return a;
+		})
+				.service()
+				.lane("testRetryBackoff")
+				.group("testRetryBackoff")
+				.retry(2, Duration.ofMillis(500))
+				.onSuccess(this::handleSuccess)
+				.onComplete(this::handleComplete)
+				.build();
+		UniArgWorker<Integer> other = WorkersBuilder.consumer((Integer a) -> seen.set(attempts.get()))
+				.lane("testRetryBackoff")
+				.group("testRetryBackoff")
+				.onSuccess(this::onSuccessRun)
+				.onComplete(this::handleComplete)
+				.build();
+
+		retried.run(1);
+		while (attempts.get() < 1) {
+		}
+		other.run(1);
+		while (counterComplete.get() < 2) {
+		}
+
+		// the group's limit is free while the service worker backs off
+		assertThat(seen).hasValue(1);
+		assertThat(attempts).hasValue(2);
+		assertThat(counterSuccess).hasValue(2);
+	}
+
+	@Test
+	public void testWorkerGroupFairness() throws Exception {
+		// one thread: grouped tasks take turns on a single slot
+		WorkersBuilder.defineLane("testWorkerGroupFairness", 1);
+		WorkersBuilder.defineGroup("testFairGate", 1);
+		WorkersBuilder.defineGroup("testFairA", 10, 2);
+		WorkersBuilder.defineGroup("testFairB", 10, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		WorkersBuilder.consumer((Integer a) -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		})
+				.lane("testWorkerGroupFairness")
+				.group("testFairGate")
+				.onSuccess(this::onSuccessRun)
+				.build()
+				.run(0);
+		for (String group : Arrays.asList("testFairA", "testFairB")) {
+			for (int i = 0; i < 6; i++) {
+				WorkersBuilder.consumer((Integer a) -> order.add(group))
+						.lane("testWorkerGroupFairness")
+						.group(group)
+						.onSuccess(this::onSuccessRun)
+						.onComplete(this::handleComplete)
+						.build()
+						.run(i);
+			}
+		}
+		while (WorkersBuilder.metrics().getGroupStats("testFairB").getQueueDepth() < 6) {
+		}
+		release.countDown();
+		while (counterComplete.get() < 12) {
+		}
+
+		// weight 2 against 1: A gets two of every three slots while both wait
+		List<String> first = order.subList(0, 6);
+		assertThat(first.stream().filter("testFairA"::equals).count()).isEqualTo(4);
+		assertThat(first.stream().filter("testFairB"::equals).count()).isEqualTo(2);
+	}
+
+	@Test
+	public void testPriority() throws Exception {
+		WorkersBuilder.defineLane("testPriority", 1);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		CountDownLatch release = blockLane("testPriority");
+		for (WorkerPriority priority : Arrays.asList(WorkerPriority.LOW, WorkerPriority.LOW, WorkerPriority.HIGH,
+				WorkerPriority.NORMAL, WorkerPriority.HIGH)) {
+			prioritized("testPriority", priority, order);
+		}
+		release.countDown();
+		while (counterComplete.get() < 5) {
+		}
+		assertThat(order).containsExactly("HIGH", "HIGH", "NORMAL", "LOW", "LOW");
+
+		// aged past its delay, a queued task goes before newer HIGH ones
+		order.clear();
+		release = blockLane("testPriority");
+		prioritized("testPriority", WorkerPriority.NORMAL, order);
+		pause(WorkerPriority.NORMAL.getAging().toMillis() + 100);
+		prioritized("testPriority", WorkerPriority.HIGH, order);
+		release.countDown();
+		while (counterComplete.get() < 7) {
+		}
+		assertThat(order).containsExactly("NORMAL", "HIGH");
+	}
+
+	@Test
+	public void testPriorityWithUnprioritized() throws Exception {
+		WorkersBuilder.defineLane("testMixedPriority", 1);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		// unprioritized tasks queue as NORMAL instead of going to the pool's queue
+		CountDownLatch release = blockLane("testMixedPriority");
+		prioritized("testMixedPriority", WorkerPriority.LOW, order);
+		for (int i = 0; i < 3; i++) {
+			WorkersBuilder.consumer((Integer a) -> order.add("NONE"))
+					.lane("testMixedPriority")
+					.onSuccess(this::onSuccessRun)
+					.onComplete(this::handleComplete)
+					.build()
+					.run(0);
+		}
+		prioritized("testMixedPriority", WorkerPriority.HIGH, order);
+		release.countDown();
+		while (counterComplete.get() < 5) {
+		}
+		assertThat(order).containsExactly("HIGH", "NONE", "NONE", "NONE", "LOW");
+
+		// with a free thread, they go to the pool directly
+		pause(50);
+		long submitted = WorkersBuilder.metrics().getGroupStats(WorkerGroup.DEFAULT_NAME).getSubmitted();
+		WorkersBuilder.consumer((Integer a) -> order.add("NONE"))
+				.lane("testMixedPriority")
+				.onSuccess(this::onSuccessRun)
+				.onComplete(this::handleComplete)
+				.build()
+				.run(0);
+		while (counterComplete.get() < 6) {
+		}
+		assertThat(WorkersBuilder.metrics().getGroupStats(WorkerGroup.DEFAULT_NAME).getSubmitted())
+				.isEqualTo(submitted);
+	}
+
+	@Test
+	public void testRejectedFromGroupQueue() throws Exception {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+		WorkersBuilder.setExecutor(pool);
+		try {
+			CountDownLatch release = new CountDownLatch(1);
+			CountDownLatch started = new CountDownLatch(1);
+			WorkersBuilder.consumer((Integer a) -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			})
+					.priority(WorkerPriority.HIGH)
+					.onSuccess(this::onSuccessRun)
+					.onComplete(this::handleComplete)
+					.build()
+					.run(0);
+			started.await();
+
+			// queued in the default group while the only slot of the pool is taken
+			List<Throwable> errors = new CopyOnWriteArrayList<>();
+			List<CompletableFuture<?>> results = new ArrayList<>();
+			List<Function<WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>, WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>>> impls = Arrays
+					.asList(b -> b, b -> b.completableFuture(), b -> b.service(), b -> b.singleFlight());
+			for (Function<WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>, WorkersBuilder.FunctionWorkerBuilder<Integer, Integer>> impl : impls) {
+				UniArgWorker<Integer> worker = impl.apply(WorkersBuilder.function((Integer a) -> a))
+						.priority(WorkerPriority.NORMAL)
+						.onError(errors::add)
+						.onComplete(this::handleComplete)
+						.build();
+				results.add(worker.submit(1).toCompletableFuture());
+			}
+			UniArgWorker<Integer> batch = WorkersBuilder.batchFunction((List<Integer> keys) -> keys.stream()
+					.collect(Collectors.toMap(Function.identity(), Function.identity())))
+					.priority(WorkerPriority.NORMAL)
+					.onError(errors::add)
+					.onComplete(this::handleComplete)
+					.build();
+			results.add(batch.submit(1).toCompletableFuture());
+
+			// the tasks are rejected in the pool thread that frees the slot
+			pool.shutdown();
+			release.countDown();
+			while (counterComplete.get() < 6) {
+			}
+
+			assertThat(errors).hasSize(5).allMatch(e -> e instanceof RejectedExecutionException);
+			for (CompletableFuture<?> result : results) {
+				assertThat(result).isCompletedExceptionally();
+			}
+		} finally {
+			WorkersBuilder.setExecutor(null);
+		}
+	}
+
+	@Test
+	public void testPriorityOnUnboundedExecutor() throws Exception {
+		// a thread per task: prioritized work is not capped at the core count
+		WorkersBuilder.setExecutor(r -> new Thread(r).start());
+		try {
+			int n = Runtime.getRuntime().availableProcessors() + 2;
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger running = new AtomicInteger();
+			for (int i = 0; i < n; i++) {
+				WorkersBuilder.consumer((Integer a) -> {
+					running.incrementAndGet();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				})
+						.priority(WorkerPriority.HIGH)
+						.onSuccess(this::onSuccessRun)
+						.onComplete(this::handleComplete)
+						.build()
+						.run(i);
+			}
+			while (running.get() < n) {
+			}
+			release.countDown();
+			while (counterComplete.get() < n) {
+			}
+			assertThat(counterSuccess).hasValue(n);
+		} finally {
+			WorkersBuilder.setExecutor(null);
+		}
+	}
+
+	/**
+	 * @return latch that releases the only thread of {@code lane}, taken by a
+	 *         prioritized task
+	 */
+	private CountDownLatch blockLane(String lane) {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		WorkersBuilder.consumer((Integer a) -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		})
+				.lane(lane)
+				.priority(WorkerPriority.HIGH)
+				.onSuccess(this::onSuccessRun)
+				.build()
+				.run(0);
+		try {
+			started.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return release;
+	}
+
+	private void prioritized(String lane, WorkerPriority priority, List<String> order) {
+		WorkersBuilder.consumer((Integer a) -> order.add(priority.name()))
+				.lane(lane)
+				.priority(() -> priority)
+				.onSuccess(this::onSuccessRun)
+				.onComplete(this::handleComplete)
+				.build()
+				.run(0);
+	}
 }